@@ -0,0 +1,112 @@
+package edu.ufl.cise.plpfa22;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable set of chars stored as sorted, disjoint, non-adjacent inclusive ranges, used as the label of an
+ * {@link FSANode} transition.
+ */
+public final class CharClass {
+    //ranges[2 * i] and ranges[2 * i + 1] are the first and last char of the i-th range
+    private final char[] ranges;
+
+    private CharClass(char[] ranges) {
+        this.ranges = ranges;
+    }
+
+    public static CharClass of(final char ch) {
+        return new CharClass(new char[]{ch, ch});
+    }
+
+    public static CharClass range(final char first, final char last) {
+        if (first > last) {
+            throw new IllegalArgumentException("Empty range " + (int) first + ".." + (int) last);
+        }
+        return new CharClass(new char[]{first, last});
+    }
+
+    //every char except the given ones
+    public static CharClass anyExcept(final char... excluded) {
+        final char[] sorted = excluded.clone();
+        Arrays.sort(sorted);
+        final char[] ranges = new char[2 * (sorted.length + 1)];
+        int num = 0;
+        int first = Character.MIN_VALUE;
+        for (char ch : sorted) {
+            if (ch > first) {
+                ranges[num++] = (char) first;
+                ranges[num++] = (char) (ch - 1);
+            }
+            first = Math.max(first, ch + 1);
+        }
+        if (first <= Character.MAX_VALUE) {
+            ranges[num++] = (char) first;
+            ranges[num++] = Character.MAX_VALUE;
+        }
+        return new CharClass(Arrays.copyOf(ranges, num));
+    }
+
+    public CharClass union(final CharClass other) {
+        final char[] merged = new char[ranges.length + other.ranges.length];
+        int num = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ranges.length || j < other.ranges.length) {
+            //take the range that starts first
+            final char[] from;
+            final int index;
+            if (j >= other.ranges.length || (i < ranges.length && ranges[i] <= other.ranges[j])) {
+                from = ranges;
+                index = i;
+                i += 2;
+            } else {
+                from = other.ranges;
+                index = j;
+                j += 2;
+            }
+            //extend the previous range when they overlap or touch
+            if (num > 0 && from[index] <= merged[num - 1] + 1) {
+                merged[num - 1] = (char) Math.max(merged[num - 1], from[index + 1]);
+            } else {
+                merged[num++] = from[index];
+                merged[num++] = from[index + 1];
+            }
+        }
+        return new CharClass(Arrays.copyOf(merged, num));
+    }
+
+    public boolean contains(final char ch) {
+        //find the last range starting at or before ch
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (ranges[2 * mid] > ch) {
+                high = mid - 1;
+            } else if (ranges[2 * mid + 1] < ch) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //marks the chars at which membership in this class may change
+    void addBoundaries(final BitSet boundaries) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            boundaries.set(ranges[i]);
+            boundaries.set(ranges[i + 1] + 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < ranges.length; i += 2) {
+            sb.append(i == 0 ? "" : ", ").append((int) ranges[i]).append("..").append((int) ranges[i + 1]);
+        }
+        return sb.append("]").toString();
+    }
+}
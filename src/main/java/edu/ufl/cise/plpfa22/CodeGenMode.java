@@ -0,0 +1,11 @@
+package edu.ufl.cise.plpfa22;
+
+public enum CodeGenMode {
+    //one Runnable class per procedure, created by each CALL with the chain of its enclosing objects
+    NESTED_CLASSES,
+    //as NESTED_CLASSES, with the object of a procedure kept by its owner and reused by the next call that finds it not
+    //running; pays off for calls whose objects escape analysis cannot remove, as for large or recursive procedures
+    CACHED_NESTED_CLASSES,
+    //one class with a private method per procedure and the variables of all blocks lifted to its fields
+    METHODS
+}
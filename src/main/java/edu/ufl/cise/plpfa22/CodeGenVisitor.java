@@ -18,13 +18,28 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
     final String sourceFileName;
     final String fullyQualifiedClassName;
     final ArrayList<String> classNameStack = new ArrayList<>();
+    final Map<ProcDec, BitSet> outerLevels = new IdentityHashMap<>();
+    //JVM locals of the variables the LocalVariableVisitor marked local
+    final Map<VarDec, Integer> localSlots = new IdentityHashMap<>();
+    //whether a CALL reuses the procedure object of the previous one, see CodeGenMode.CACHED_NESTED_CLASSES
+    final boolean cacheProcedures;
+
+    //local 0 is this
+    static final int FIRST_FREE_LOCAL = 1;
+    //class of the support methods the generated code calls
+    static final String RUNTIME_CLASS_NAME = "edu/ufl/cise/plpfa22/PLPRuntime";
 
 
     public CodeGenVisitor(String className, String packageName, String sourceFileName) {
+        this(className, packageName, sourceFileName, false);
+    }
+
+    public CodeGenVisitor(String className, String packageName, String sourceFileName, boolean cacheProcedures) {
         super();
         this.packageName = packageName;
         this.sourceFileName = sourceFileName;
         this.fullyQualifiedClassName = packageName + "/" + className;
+        this.cacheProcedures = cacheProcedures;
     }
 
     @Override
@@ -51,6 +66,20 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         constructor.visitMaxs(0, 0);
         constructor.visitEnd();
 
+        generateMain(classWriter);
+
+        classNameStack.add(fullyQualifiedClassName);
+        final List<GenClass> subClasses = (List<GenClass>) program.block.visit(this, Arrays.asList(classWriter, fullyQualifiedClassName, "this"));
+        classWriter.visitEnd();
+        final List<GenClass> allClasses = new ArrayList<>();
+        allClasses.add(new GenClass(fullyQualifiedClassName, classWriter.toByteArray()));
+        allClasses.addAll(subClasses);
+
+        return allClasses;
+    }
+
+    //main runs the program, whose run method writes the output it buffered
+    void generateMain(ClassWriter classWriter) {
         final MethodVisitor mainVisitor = classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null);
         mainVisitor.visitCode();
         mainVisitor.visitTypeInsn(NEW, fullyQualifiedClassName);
@@ -60,15 +89,26 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         mainVisitor.visitInsn(RETURN);
         mainVisitor.visitMaxs(0, 0);
         mainVisitor.visitEnd();
+    }
 
-        classNameStack.add(fullyQualifiedClassName);
-        final List<GenClass> subClasses = (List<GenClass>) program.block.visit(this, Arrays.asList(classWriter, fullyQualifiedClassName, "this"));
-        classWriter.visitEnd();
-        final List<GenClass> allClasses = new ArrayList<>();
-        allClasses.add(new GenClass(fullyQualifiedClassName, classWriter.toByteArray()));
-        allClasses.addAll(subClasses);
+    //starts the code of the run method of the program, after which the buffered output is written also if it failed,
+    //so that a program run as a Runnable writes its output as one run by main; returns the labels for endFlush
+    static Label[] beginFlush(MethodVisitor mv) {
+        final Label[] labels = {new Label(), new Label(), new Label()};
+        mv.visitTryCatchBlock(labels[0], labels[1], labels[2], null);
+        mv.visitLabel(labels[0]);
+        return labels;
+    }
 
-        return allClasses;
+    //writes the buffered output and returns, or writes it and rethrows if the code since beginFlush failed; the first
+    //flush is in the range of the handler, which would be empty for an empty program
+    static void endFlush(MethodVisitor mv, Label[] labels) {
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME_CLASS_NAME, "flush", "()V", false);
+        mv.visitLabel(labels[1]);
+        mv.visitInsn(RETURN);
+        mv.visitLabel(labels[2]);
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME_CLASS_NAME, "flush", "()V", false);
+        mv.visitInsn(ATHROW);
     }
 
     @Override
@@ -79,6 +119,8 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         final MethodVisitor runVisitor = blockWriter.visitMethod(ACC_PUBLIC, "run", "()V", null, null);
 
         runVisitor.visitCode();
+        final boolean isProgram = className.equals(fullyQualifiedClassName);
+        final Label[] flushLabels = isProgram ? beginFlush(runVisitor) : null;
 
         final List<ConstDec> constDecs = block.constDecs;
         final List<VarDec> varDecs = block.varDecs;
@@ -92,13 +134,46 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
             dec.visit(this, blockWriter);
         }
 
+        //a procedure object is reused by the next call that finds it not active, so its variables are reset for each
+        //activation
+        final boolean isCachedProcedure = cacheProcedures && !isProgram;
+        if (isCachedProcedure) {
+            blockWriter.visitField(ACC_SYNTHETIC, "active$", "Z", null, null).visitEnd();
+            runVisitor.visitVarInsn(ALOAD, 0);
+            runVisitor.visitInsn(ICONST_1);
+            runVisitor.visitFieldInsn(PUTFIELD, className, "active$", "Z");
+            for (final VarDec dec : nullSafeList(varDecs)) {
+                final Type type = dec.getType();
+                if (dec.isLocal()) continue;
+                runVisitor.visitVarInsn(ALOAD, 0);
+                runVisitor.visitInsn(type == NUMBER || type == BOOLEAN ? ICONST_0 : ACONST_NULL);
+                runVisitor.visitFieldInsn(PUTFIELD, className, dec.ident.getStringValue(), type == NUMBER ? "I" : (type == BOOLEAN ? "Z" : "Ljava/lang/String;"));
+            }
+        }
+        allocateLocals(runVisitor, nullSafeList(varDecs), FIRST_FREE_LOCAL);
+
         final List<GenClass> allClasses = new ArrayList<>();
         for (final ProcDec dec : nullSafeList(procedureDecs)) {
+            //set by the ReachabilityVisitor if it ran
+            if (dec.isUnreachable()) continue;
+            if (cacheProcedures) {
+                final String procedureName = dec.ident.getStringValue();
+                blockWriter.visitField(ACC_SYNTHETIC, "cache$" + procedureName, toJVMClassDesc(className + "$" + procedureName), null, null).visitEnd();
+            }
             allClasses.addAll((Collection<? extends GenClass>) dec.visit(this, className));
         }
 
         block.statement.visit(this, Arrays.asList(runVisitor, className));
-        runVisitor.visitInsn(RETURN);
+        if (isCachedProcedure) {
+            runVisitor.visitVarInsn(ALOAD, 0);
+            runVisitor.visitInsn(ICONST_0);
+            runVisitor.visitFieldInsn(PUTFIELD, className, "active$", "Z");
+        }
+        if (isProgram) {
+            endFlush(runVisitor, flushLabels);
+        } else {
+            runVisitor.visitInsn(RETURN);
+        }
         runVisitor.visitMaxs(0, 0);
         runVisitor.visitEnd();
         return allClasses;
@@ -116,6 +191,9 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
     public Object visitVarDec(VarDec varDec, Object arg) throws PLPException {
         final ClassWriter blockWriter = (ClassWriter) arg;
         final Type type = varDec.getType();
+        if (varDec.isLocal()) {
+            return null;
+        }
         blockWriter.visitField(ACC_PUBLIC, varDec.ident.getStringValue(), type == NUMBER ? "I" : (type == BOOLEAN ? "Z" : "Ljava/lang/String;"), null, null).visitEnd();
         return null;
     }
@@ -132,19 +210,22 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         procedureWriter.visitNestHost(fullyQualifiedClassName);
         procedureWriter.visitInnerClass(className, superClassName, procedureName, 0);
 
-        for (int i = 0; i < classNameStack.size(); i++) {
+        //only the objects of the enclosing blocks that the procedure or the procedures in it use are kept
+        final BitSet levels = getOuterLevels(procDec);
+        for (int i = levels.nextSetBit(0); i >= 0; i = levels.nextSetBit(i + 1)) {
             procedureWriter.visitField(ACC_FINAL | ACC_SYNTHETIC, "this$" + i, toJVMClassDesc(classNameStack.get(i)), null, null).visitEnd();
         }
 
         final MethodVisitor constructor = procedureWriter.visitMethod(0, "<init>", "(" + toJVMClassDesc(superClassName) + ")V", null, null);
         constructor.visitCode();
 
-        final int numCLasses = classNameStack.size();
-        for (int i = numCLasses - 1; i >= 0; i--) {
+        //the parent is the argument, and the objects of the other levels are copied from the fields of the parent
+        final int parentLevel = classNameStack.size() - 1;
+        for (int i = levels.nextSetBit(0); i >= 0; i = levels.nextSetBit(i + 1)) {
             constructor.visitVarInsn(ALOAD, 0); //this
             constructor.visitVarInsn(ALOAD, 1);
-            for (int j = 1; j < numCLasses - i; j++) {
-                constructor.visitFieldInsn(GETFIELD, classNameStack.get(numCLasses - j), "this$0", toJVMClassDesc(classNameStack.get(numCLasses - j - 1))); //(i + 1)^th parent
+            if (i != parentLevel) {
+                constructor.visitFieldInsn(GETFIELD, superClassName, "this$" + i, toJVMClassDesc(classNameStack.get(i)));
             }
             constructor.visitFieldInsn(PUTFIELD, className, "this$" + i, toJVMClassDesc(classNameStack.get(i)));
         }
@@ -181,6 +262,9 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         final String className = (String) args.get(1);
         //evaluate the expression
         statementAssign.expression.visit(this, Arrays.asList(mv, className));
+        if (storeLocal(mv, statementAssign.ident.getDec())) {
+            return null;
+        }
 
         final int level = statementAssign.ident.getDec().getNest();
         final String ownerClassName = classNameStack.get(level);
@@ -208,17 +292,110 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         final String ownerClassName = classNameStack.get(level);
 
         final String subClassName = ownerClassName + "$" + calledProcedure;
+        if (!cacheProcedures) {
+            mv.visitTypeInsn(NEW, subClassName);
+            mv.visitInsn(DUP);
+            loadOwner(mv, currClassName, level);
+            mv.visitMethodInsn(INVOKESPECIAL, subClassName, "<init>", "(" + toJVMClassDesc(ownerClassName) + ")V", false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, subClassName, "run", "()V", false);
+            return null;
+        }
+        final String cacheName = "cache$" + calledProcedure;
+        final String subClassDesc = toJVMClassDesc(subClassName);
+        final Label labelCreate = new Label();
+        final Label labelCall = new Label();
+
+        //the procedure object cached by the owner, the object of the block that declares the procedure, is reused
+        //unless it is running, as it is for a recursive call
+        loadOwner(mv, currClassName, level);
+        mv.visitFieldInsn(GETFIELD, ownerClassName, cacheName, subClassDesc);
+        mv.visitInsn(DUP);
+        mv.visitJumpInsn(IFNULL, labelCreate);
+        mv.visitInsn(DUP);
+        mv.visitFieldInsn(GETFIELD, subClassName, "active$", "Z");
+        mv.visitJumpInsn(IFEQ, labelCall);
+        mv.visitLabel(labelCreate);
+        mv.visitInsn(POP);
         mv.visitTypeInsn(NEW, subClassName);
         mv.visitInsn(DUP);
+        loadOwner(mv, currClassName, level);
+        mv.visitMethodInsn(INVOKESPECIAL, subClassName, "<init>", "(" + toJVMClassDesc(ownerClassName) + ")V", false);
+        //only the first object is cached, so that references are stored once per owner
+        loadOwner(mv, currClassName, level);
+        mv.visitFieldInsn(GETFIELD, ownerClassName, cacheName, subClassDesc);
+        mv.visitJumpInsn(IFNONNULL, labelCall);
+        mv.visitInsn(DUP);
+        loadOwner(mv, currClassName, level);
+        mv.visitInsn(SWAP);
+        mv.visitFieldInsn(PUTFIELD, ownerClassName, cacheName, subClassDesc);
+        mv.visitLabel(labelCall);
+        mv.visitMethodInsn(INVOKEVIRTUAL, subClassName, "run", "()V", false);
+        return null;
+    }
+
+    //levels of the enclosing blocks whose objects the code of the procedure or of the procedures in it loads
+    BitSet getOuterLevels(ProcDec procDec) {
+        BitSet levels = outerLevels.get(procDec);
+        if (levels == null) {
+            //the level of the block of the procedure
+            final int level = procDec.getNest() + 1;
+            levels = new BitSet();
+            addLevels(procDec.block.statement, levels);
+            for (final ProcDec dec : procDec.block.procedureDecs) {
+                if (!dec.isUnreachable()) {
+                    levels.or(getOuterLevels(dec));
+                }
+            }
+            levels.clear(level, Math.max(level, levels.length()));
+            outerLevels.put(procDec, levels);
+        }
+        return levels;
+    }
+
+    private static void addLevels(Statement statement, BitSet levels) {
+        if (statement instanceof StatementAssign assign) {
+            levels.set(assign.ident.getDec().getNest());
+            addLevels(assign.expression, levels);
+        } else if (statement instanceof StatementCall call) {
+            levels.set(call.ident.getDec().getNest());
+        } else if (statement instanceof StatementInput input) {
+            levels.set(input.ident.getDec().getNest());
+        } else if (statement instanceof StatementOutput output) {
+            addLevels(output.expression, levels);
+        } else if (statement instanceof StatementBlock block) {
+            for (final Statement s : block.statements) {
+                addLevels(s, levels);
+            }
+        } else if (statement instanceof StatementIf statementIf) {
+            addLevels(statementIf.expression, levels);
+            addLevels(statementIf.statement, levels);
+        } else if (statement instanceof StatementWhile statementWhile) {
+            addLevels(statementWhile.expression, levels);
+            addLevels(statementWhile.statement, levels);
+        }
+    }
+
+    private static void addLevels(Expression expression, BitSet levels) {
+        //constants known at compile time are loaded without their object
+        if (expression.getValue() != null) return;
+        if (expression instanceof ExpressionIdent ident) {
+            levels.set(ident.getDec().getNest());
+        } else if (expression instanceof ExpressionBinary binary) {
+            if (binary.getSimplified() != null) {
+                addLevels(binary.getSimplified(), levels);
+            } else {
+                addLevels(binary.e0, levels);
+                addLevels(binary.e1, levels);
+            }
+        }
+    }
 
+    //loads the object of the block at given level on to the stack
+    private void loadOwner(MethodVisitor mv, String currClassName, int level) {
         mv.visitVarInsn(ALOAD, 0);
         if (classNameStack.size() != level + 1) {
-            mv.visitFieldInsn(GETFIELD, currClassName, "this$" + level, toJVMClassDesc(ownerClassName));
+            mv.visitFieldInsn(GETFIELD, currClassName, "this$" + level, toJVMClassDesc(classNameStack.get(level)));
         }
-
-        mv.visitMethodInsn(INVOKESPECIAL, subClassName, "<init>", "(" + toJVMClassDesc(ownerClassName) + ")V", false);
-        mv.visitMethodInsn(INVOKEVIRTUAL, subClassName, "run", "()V", false);
-        return null;
     }
 
     @Override
@@ -228,36 +405,70 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         final String className = (String) args.get(1);
         final String name = statementInput.ident.getFirstToken().getStringValue();
         final Type type = statementInput.ident.getDec().getType();
-        mv.visitVarInsn(ALOAD, 0);
-        mv.visitTypeInsn(NEW, "java/util/Scanner");
-        mv.visitInsn(DUP);
-        mv.visitFieldInsn(GETSTATIC, "java/lang/System", "in", "Ljava/io/InputStream;");
-        mv.visitMethodInsn(INVOKESPECIAL, "java/util/Scanner", "<init>", "(Ljava/io/InputStream;)V", false);
-        if (type.equals(Type.STRING)) {
-            mv.visitMethodInsn(INVOKEVIRTUAL, "java/util/Scanner", "nextLine", "()Ljava/lang/String;", false);
-        } else if (type.equals(Type.NUMBER)) {
-            mv.visitMethodInsn(INVOKEVIRTUAL, "java/util/Scanner", "nextInt", "()I", false);
-        } else {
-            mv.visitMethodInsn(INVOKEVIRTUAL, "java/util/Scanner", "nextLine", "()Ljava/lang/String;", false);
-            mv.visitLdcInsn("TRUE");
-            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+        if (localSlots.containsKey(statementInput.ident.getDec())) {
+            generateRead(mv, type);
+            storeLocal(mv, statementInput.ident.getDec());
+            return null;
         }
+        mv.visitVarInsn(ALOAD, 0);
+        generateRead(mv, type);
         //update value
         mv.visitFieldInsn(PUTFIELD, className, name, type == NUMBER ? "I" : (type == BOOLEAN ? "Z" : "Ljava/lang/String;"));
         return null;
     }
 
+    //gives each local variable of a block a JVM local from given slot on, set to the initial value of a field, and
+    //returns the next free slot
+    int allocateLocals(MethodVisitor mv, List<VarDec> varDecs, int slot) {
+        for (final VarDec dec : varDecs) {
+            final Type type = dec.getType();
+            //a variable that is never used has no type and needs no local
+            if (!dec.isLocal() || type == null) continue;
+            mv.visitInsn(type == STRING ? ACONST_NULL : ICONST_0);
+            mv.visitVarInsn(type == STRING ? ASTORE : ISTORE, slot);
+            localSlots.put(dec, slot++);
+        }
+        return slot;
+    }
+
+    //loads the variable on to the stack if it is in a JVM local
+    boolean loadLocal(MethodVisitor mv, Declaration dec) {
+        final Integer slot = localSlots.get(dec);
+        if (slot == null) {
+            return false;
+        }
+        mv.visitVarInsn(dec.getType() == STRING ? ALOAD : ILOAD, slot);
+        return true;
+    }
+
+    //stores the value on the stack to the variable if it is in a JVM local
+    boolean storeLocal(MethodVisitor mv, Declaration dec) {
+        final Integer slot = localSlots.get(dec);
+        if (slot == null) {
+            return false;
+        }
+        mv.visitVarInsn(dec.getType() == STRING ? ASTORE : ISTORE, slot);
+        return true;
+    }
+
+    //reads a value of given type from System.in on to the stack, with the reader the program shares
+    void generateRead(MethodVisitor mv, Type type) {
+        final String method = type == NUMBER ? "readNumber" : (type == BOOLEAN ? "readBoolean" : "readString");
+        final String descriptor = type == NUMBER ? "()I" : (type == BOOLEAN ? "()Z" : "()Ljava/lang/String;");
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME_CLASS_NAME, method, descriptor, false);
+    }
+
     @Override
     public Object visitStatementOutput(StatementOutput statementOutput, Object arg) throws PLPException {
         final List<Object> args = (List<Object>) arg;
         final MethodVisitor mv = (MethodVisitor) args.get(0);
         final String className = (String) args.get(1);
-        mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
         statementOutput.expression.visit(this, Arrays.asList(mv, className));
         Type etype = statementOutput.expression.getType();
         String JVMType = (etype.equals(NUMBER) ? "I" : (etype.equals(Type.BOOLEAN) ? "Z" : "Ljava/lang/String;"));
         String printlnSig = "(" + JVMType + ")V";
-        mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", printlnSig, false);
+        //the output is buffered by the runtime instead of written to System.out by each statement
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME_CLASS_NAME, "println", printlnSig, false);
         return null;
     }
 
@@ -274,6 +485,14 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         final List<Object> args = (List<Object>) arg;
         final MethodVisitor mv = (MethodVisitor) args.get(0);
         final String className = (String) args.get(1);
+        //a condition known after constant folding needs no test, and a false one no statement
+        final Object condition = statementIf.expression.getValue();
+        if (condition != null) {
+            if ((Boolean) condition) {
+                statementIf.statement.visit(this, arg);
+            }
+            return null;
+        }
         statementIf.expression.visit(this, Arrays.asList(mv, className));
         Label labelCompFalseBr = new Label();
         // if expression is false then jump to the end label
@@ -289,8 +508,17 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         final List<Object> args = (List<Object>) arg;
         final MethodVisitor mv = (MethodVisitor) args.get(0);
         final String className = (String) args.get(1);
+        final Object condition = statementWhile.expression.getValue();
+        if (Boolean.FALSE.equals(condition)) {
+            return null;
+        }
         final Label labelWhile = new Label();
         mv.visitLabel(labelWhile);
+        if (condition != null) {
+            statementWhile.statement.visit(this, arg);
+            mv.visitJumpInsn(GOTO, labelWhile);
+            return null;
+        }
         statementWhile.expression.visit(this, Arrays.asList(mv, className));
         final Label labelCompFalseBr = new Label();
         // if expression is false then jump to the end label
@@ -311,6 +539,14 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
     public Object visitExpressionBinary(ExpressionBinary expressionBinary, Object arg) throws PLPException {
         final List<Object> args = (List<Object>) arg;
         final MethodVisitor mv = (MethodVisitor) args.get(0);
+        //set by the ConstantFoldingVisitor if it ran
+        if (expressionBinary.getValue() != null) {
+            loadConstant(mv, expressionBinary.getValue());
+            return null;
+        }
+        if (expressionBinary.getSimplified() != null) {
+            return expressionBinary.getSimplified().visit(this, arg);
+        }
         Type argType = expressionBinary.e0.getType();
         Kind op = expressionBinary.op.getKind();
         switch (argType) {
@@ -360,10 +596,10 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
                         mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
                         generateInstForComp(mv, IFNE);
                     }
-                    case LT -> generateInstForStringComp(mv, "startsWith", IAND);
-                    case LE -> generateInstForStringComp(mv, "startsWith", IOR);
-                    case GT -> generateInstForStringComp(mv, "endsWith", IAND);
-                    case GE -> generateInstForStringComp(mv, "endsWith", IOR);
+                    case LT -> generateInstForStringComp(mv, "stringLT");
+                    case LE -> generateInstForStringComp(mv, "stringLE");
+                    case GT -> generateInstForStringComp(mv, "stringGT");
+                    case GE -> generateInstForStringComp(mv, "stringGE");
                     default -> throw new IllegalStateException("code gen bug in visitExpressionBinary STRING");
                 }
             }
@@ -377,6 +613,14 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         final List<Object> args = (List<Object>) arg;
         final MethodVisitor mv = (MethodVisitor) args.get(0);
         final String className = (String) args.get(1);
+        //a constant is loaded from the constant pool instead of its field
+        if (expressionIdent.getValue() != null) {
+            loadConstant(mv, expressionIdent.getValue());
+            return null;
+        }
+        if (loadLocal(mv, expressionIdent.getDec())) {
+            return null;
+        }
 
         final int level = expressionIdent.getDec().getNest();
         final String ownerClassName = classNameStack.get(level);
@@ -422,6 +666,14 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         throw new PLPException("Visitor should not reach here");
     }
 
+    public void loadConstant(MethodVisitor mv, Object value) {
+        if (value instanceof Boolean bool) {
+            mv.visitInsn(bool ? ICONST_1 : ICONST_0);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
     // have to give the opcode of the opposite compare instruction of the comparison that we want to do because the opposite compare instruction would be used to branch to a false condition
     // i.e. if evaluation of OPCODE instruction is true then sets false otherwise sets true
     public void generateInstForComp(MethodVisitor mv, int OPCODE) {
@@ -437,29 +689,9 @@ public class CodeGenVisitor implements ASTVisitor, Opcodes {
         mv.visitLabel(labelPostComp);
     }
 
-    public void generateInstForStringComp(MethodVisitor mv, String methodName, int OPCODE) {
-        // store the strings to variable array for later use in checking equality
-        mv.visitVarInsn(ASTORE, 1);
-        mv.visitVarInsn(ASTORE, 2);
-        // load the strings to check for prefix
-        mv.visitVarInsn(ALOAD, 2);
-        mv.visitVarInsn(ALOAD, 1);
-        if (methodName.equals("startsWith")) {
-            // swap the two strings so that the string on top is the one on which startsWith is called
-            mv.visitInsn(SWAP);
-        }
-        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", methodName, "(Ljava/lang/String;)Z", false);
-        // load the strings again to check for non equality
-        mv.visitVarInsn(ALOAD, 2);
-        mv.visitVarInsn(ALOAD, 1);
-        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
-        // if method being called for LE or GE then need to check for equality, not non-equality of the strings, so negate the result only in case of LT and GT
-        if (OPCODE == IAND) {
-            generateInstForComp(mv, IFNE);
-        }
-        // based on the requirement, AND or OR the two boolean results from not equals and startsWith/endsWith
-        mv.visitInsn(OPCODE);
-        // can reduce the number of operations by invoking not equals check only if startsWith/endsWith is true
+    //compares the two strings on the stack with the runtime method of the operator, which needs no locals
+    public void generateInstForStringComp(MethodVisitor mv, String methodName) {
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME_CLASS_NAME, methodName, "(Ljava/lang/String;Ljava/lang/String;)Z", false);
     }
 
     private static <T> List<T> nullSafeList(final List<T> list) {
@@ -8,17 +8,88 @@ package edu.ufl.cise.plpfa22;
 import edu.ufl.cise.plpfa22.IToken.Kind;
 import edu.ufl.cise.plpfa22.ast.ASTVisitor;
 
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
 import static edu.ufl.cise.plpfa22.IToken.Kind.*;
 import static edu.ufl.cise.plpfa22.Token.ESCAPED_SYMBOLS;
 
 public class CompilerComponentFactory {
 
     public static ILexer getLexer(String input) {
-        return new Lexer(input + "\0", getLanguageFSA());
+        return getLexer(input, LexerMode.AUTOMATON);
+    }
+
+    public static ILexer getLexer(String input, LexerMode mode) {
+        return switch (mode) {
+            case AUTOMATON -> new Lexer(input + "\0", getLanguageFSA());
+            case FAST -> new FastLexer(input);
+            case TOKEN_STREAM -> getTokenStream(input);
+            case PARALLEL -> new ParallelLexer(getLanguageFSA(), ForkJoinPool.commonPool()).lex(input + "\0");
+        };
+    }
+
+    public static TokenStream getTokenStream(String input) {
+        return new Lexer(input + "\0", getLanguageFSA()).toTokenStream();
+    }
+
+    //token stream of given input read back from what TokenStream.writeTo() wrote for it, without lexing it again
+    public static TokenStream getTokenStream(String input, DataInput in) throws IOException {
+        return TokenStream.readFrom(in, (input + "\0").toCharArray());
+    }
+
+    //lexers over a stream of chars or UTF-8 bytes; the source is closed when the lexer reaches its end
+    public static StreamingLexer getLexer(Reader reader) {
+        return new StreamingLexer(reader, getLanguageFSA());
+    }
+
+    public static StreamingLexer getLexer(InputStream in) {
+        return getLexer(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public static StreamingLexer getLexer(ReadableByteChannel channel) {
+        return getLexer(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    public static StreamingLexer getLexer(Path path) throws IOException {
+        return getLexer(new MappedFileReader(path));
+    }
+
+    //the language automaton is immutable, so it is built on first use and shared by all lexers
+    private static class LanguageFSAHolder {
+        private static final FSA INSTANCE = buildLanguageFSA();
     }
 
     public static IParser getParser(final ILexer lexer) {
-        return new Parser(lexer);
+        return getParser(lexer, ParserMode.RECURSIVE_DESCENT);
+    }
+
+    public static IParser getParser(final ILexer lexer, final ParserMode mode) {
+        return switch (mode) {
+            case RECURSIVE_DESCENT -> new Parser(lexer);
+            case WORKER_THREAD -> new WorkerThreadParser(new Parser(lexer));
+        };
+    }
+
+    public static RecoveringParser getRecoveringParser(final ILexer lexer) {
+        return new RecoveringParser(lexer);
+    }
+
+    //AST of the program in given token stream stored in arrays; see FlatAST.visit() to run the visitors on it
+    public static FlatAST getFlatAST(final TokenStream tokens) throws PLPException {
+        return new FlatParser(tokens).parse();
+    }
+
+    public static IncrementalParser getIncrementalParser(final String input) {
+        return new IncrementalParser(input, getLanguageFSA());
     }
 
     public static ASTVisitor getScopeVisitor() {
@@ -29,11 +100,42 @@ public class CompilerComponentFactory {
         return new TypeInferenceVisitor();
     }
 
+    //optional pass between type inference and code generation
+    public static ASTVisitor getConstantFoldingVisitor() {
+        return new ConstantFoldingVisitor();
+    }
+
+    //optional pass after constant folding, so that calls under a FALSE condition are not followed
+    public static ASTVisitor getReachabilityVisitor() {
+        return new ReachabilityVisitor();
+    }
+
+    //optional pass after type inference, and after the ReachabilityVisitor if it runs
+    public static ASTVisitor getLocalVariableVisitor() {
+        return new LocalVariableVisitor();
+    }
+
     public static ASTVisitor getCodeGenVisitor(String className, String packageName, String sourceFileName) {
-        return new CodeGenVisitor(className, packageName, sourceFileName);
+        return getCodeGenVisitor(className, packageName, sourceFileName, CodeGenMode.NESTED_CLASSES);
     }
 
-    private static FSA getLanguageFSA() {
+    public static ASTVisitor getCodeGenVisitor(String className, String packageName, String sourceFileName, CodeGenMode mode) {
+        return switch (mode) {
+            case NESTED_CLASSES -> new CodeGenVisitor(className, packageName, sourceFileName);
+            case CACHED_NESTED_CLASSES -> new CodeGenVisitor(className, packageName, sourceFileName, true);
+            case METHODS -> new MethodCodeGenVisitor(className, packageName, sourceFileName);
+        };
+    }
+
+    static FSA getLanguageFSA() {
+        return LanguageFSAHolder.INSTANCE;
+    }
+
+    static FSA buildLanguageFSA() {
+        return new FSA(getLanguageNFA(), Lexer.KINDS_BY_PRIORITY);
+    }
+
+    private static FSANode getLanguageNFA() {
         final FSANode start = new FSANode(false, null);
         start.addTransition(null, getReservedCharFSA(EOF, '\0'));
         start.addTransition(null, getReservedCharFSA(MINUS, '-'));
@@ -75,7 +177,7 @@ public class CompilerComponentFactory {
         start.addTransition(null, getStringLiteralFSA());
         start.addTransition(null, getCommentFSA());
 
-        return new FSA(start);
+        return start;
     }
 
     private static FSANode getReservedCharFSA(final String kind, final char ch) {
@@ -94,9 +196,10 @@ public class CompilerComponentFactory {
         final FSANode start = new FSANode(false, kind.name());
         final char[] input = str.toCharArray();
         FSANode prevNode = start;
-        for (char c : input) {
-            final FSANode newNode = new FSANode(true, kind.name());
-            prevNode.addTransition(c, newNode);
+        for (int i = 0; i < input.length; i++) {
+            //only the complete spelling is accepted, so that e.g. "C" or ":" are not recognized as CONST or :=
+            final FSANode newNode = new FSANode(i == input.length - 1, kind.name());
+            prevNode.addTransition(input[i], newNode);
             prevNode = newNode;
         }
         return start;
@@ -107,9 +210,10 @@ public class CompilerComponentFactory {
         String[] booleans = {"TRUE", "FALSE"};
         for (String bool : booleans) {
             FSANode currNode = start;
-            for (char c : bool.toCharArray()) {
-                final FSANode newNode = new FSANode(true, BOOLEAN_LIT.name());
-                currNode.addTransition(c, newNode);
+            final char[] input = bool.toCharArray();
+            for (int i = 0; i < input.length; i++) {
+                final FSANode newNode = new FSANode(i == input.length - 1, BOOLEAN_LIT.name());
+                currNode.addTransition(input[i], newNode);
                 currNode = newNode;
             }
         }
@@ -171,13 +275,7 @@ public class CompilerComponentFactory {
         final FSANode otherNode = new FSANode(false, STRING_LIT.name());
         openingQuotes.addTransition(null, otherNode);
 
-        for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
-            final char ch = (char) i;
-            if (ch == '\\' || ch == '"') {
-                continue;
-            }
-            otherNode.addTransition(ch, openingQuotes);
-        }
+        otherNode.addTransitions(CharClass.anyExcept('\\', '"'), openingQuotes);
         return start;
     }
 
@@ -188,13 +286,7 @@ public class CompilerComponentFactory {
 
         final FSANode first = new FSANode(false, "COMMENT");
         commentStart.addTransition('/', first);
-        for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
-            final char ch = (char) i;
-            if (ch == '\n' || ch == '\r') {
-                continue;
-            }
-            first.addTransition(ch, first);
-        }
+        first.addTransitions(CharClass.anyExcept('\n', '\r'), first);
         first.addTransition(null, getNewLineFSA("COMMENT"));
         first.addTransition(null, getReservedCharFSA("COMMENT", '\0'));
         return start;
@@ -0,0 +1,217 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.IToken.Kind;
+import edu.ufl.cise.plpfa22.ast.*;
+import edu.ufl.cise.plpfa22.ast.Types.Type;
+
+import static edu.ufl.cise.plpfa22.ast.Types.Type.*;
+
+/**
+ * Runs after the TypeInferenceVisitor and before code generation. Sets the value of each expression that can be
+ * computed at compile time: literals, identifiers of constants and binary expressions of those, and marks binary
+ * expressions with an identity operand (x * 1, x + 0, TRUE * b, s + "") as simplified to the other operand. The
+ * CodeGenVisitor loads the value or generates the operand instead of the expression.
+ * <p>
+ * Expressions are free of side effects, so only evaluation errors have to be kept: a division or remainder by zero is
+ * not folded and fails at runtime as before.
+ */
+public class ConstantFoldingVisitor implements ASTVisitor {
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws PLPException {
+        return visitBlock(program.block, arg);
+    }
+
+    @Override
+    public Object visitBlock(Block block, Object arg) throws PLPException {
+        for (final ProcDec dec : block.procedureDecs) {
+            visitProcedure(dec, arg);
+        }
+        block.statement.visit(this, arg);
+        return null;
+    }
+
+    @Override
+    public Object visitStatementAssign(StatementAssign statementAssign, Object arg) throws PLPException {
+        statementAssign.expression.visit(this, arg);
+        return null;
+    }
+
+    @Override
+    public Object visitVarDec(VarDec varDec, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementCall(StatementCall statementCall, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementInput(StatementInput statementInput, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementOutput(StatementOutput statementOutput, Object arg) throws PLPException {
+        statementOutput.expression.visit(this, arg);
+        return null;
+    }
+
+    @Override
+    public Object visitStatementBlock(StatementBlock statementBlock, Object arg) throws PLPException {
+        for (final Statement statement : statementBlock.statements) {
+            statement.visit(this, arg);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitStatementIf(StatementIf statementIf, Object arg) throws PLPException {
+        statementIf.expression.visit(this, arg);
+        statementIf.statement.visit(this, arg);
+        return null;
+    }
+
+    @Override
+    public Object visitStatementWhile(StatementWhile statementWhile, Object arg) throws PLPException {
+        statementWhile.expression.visit(this, arg);
+        statementWhile.statement.visit(this, arg);
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionBinary(ExpressionBinary expressionBinary, Object arg) throws PLPException {
+        expressionBinary.e0.visit(this, arg);
+        expressionBinary.e1.visit(this, arg);
+        final Object left = expressionBinary.e0.getValue();
+        final Object right = expressionBinary.e1.getValue();
+        final Kind op = expressionBinary.op.getKind();
+        final Type type = expressionBinary.e0.getType();
+        if (left != null && right != null) {
+            expressionBinary.setValue(fold(type, op, left, right));
+        }
+        if (expressionBinary.getValue() == null) {
+            if (isIdentity(type, op, right)) {
+                expressionBinary.setSimplified(expressionBinary.e0);
+            } else if ((op == Kind.PLUS || op == Kind.TIMES) && isIdentity(type, op, left)) {
+                //PLUS and TIMES are commutative for each type, except for string concatenation with "" on either side
+                expressionBinary.setSimplified(expressionBinary.e1);
+            }
+        }
+        return null;
+    }
+
+    //value of the operation, or null if it has to be done at runtime
+    static Object fold(final Type type, final Kind op, final Object left, final Object right) {
+        switch (type) {
+            case NUMBER -> {
+                final int a = (Integer) left;
+                final int b = (Integer) right;
+                return switch (op) {
+                    case PLUS -> a + b;
+                    case MINUS -> a - b;
+                    case TIMES -> a * b;
+                    //the ArithmeticException is left to the generated code
+                    case DIV -> b == 0 ? null : a / b;
+                    case MOD -> b == 0 ? null : a % b;
+                    default -> compare(op, Integer.compare(a, b));
+                };
+            }
+            case BOOLEAN -> {
+                final boolean a = (Boolean) left;
+                final boolean b = (Boolean) right;
+                return switch (op) {
+                    case PLUS -> a | b;
+                    case TIMES -> a & b;
+                    default -> compare(op, Boolean.compare(a, b));
+                };
+            }
+            case STRING -> {
+                final String a = (String) left;
+                final String b = (String) right;
+                //same as the code generated for the comparisons: a < b if b starts with a, a > b if a ends with b
+                return switch (op) {
+                    case PLUS -> a.concat(b);
+                    case EQ -> a.equals(b);
+                    case NEQ -> !a.equals(b);
+                    case LT -> PLPRuntime.stringLT(a, b);
+                    case LE -> PLPRuntime.stringLE(a, b);
+                    case GT -> PLPRuntime.stringGT(a, b);
+                    case GE -> PLPRuntime.stringGE(a, b);
+                    default -> throw new IllegalStateException("constant folding bug in fold STRING");
+                };
+            }
+            default -> throw new IllegalStateException("constant folding bug in fold");
+        }
+    }
+
+    private static Boolean compare(final Kind op, final int comparison) {
+        return switch (op) {
+            case EQ -> comparison == 0;
+            case NEQ -> comparison != 0;
+            case LT -> comparison < 0;
+            case LE -> comparison <= 0;
+            case GT -> comparison > 0;
+            case GE -> comparison >= 0;
+            default -> throw new IllegalStateException("constant folding bug in compare");
+        };
+    }
+
+    //whether given value as the right operand leaves the left one unchanged
+    private static boolean isIdentity(final Type type, final Kind op, final Object value) {
+        if (value == null) return false;
+        return switch (type) {
+            case NUMBER -> ((op == Kind.PLUS || op == Kind.MINUS) && value.equals(0)) || ((op == Kind.TIMES || op == Kind.DIV) && value.equals(1));
+            case BOOLEAN -> (op == Kind.PLUS && value.equals(false)) || (op == Kind.TIMES && value.equals(true));
+            case STRING -> op == Kind.PLUS && value.equals("");
+            default -> false;
+        };
+    }
+
+    @Override
+    public Object visitExpressionIdent(ExpressionIdent expressionIdent, Object arg) throws PLPException {
+        if (expressionIdent.getDec() instanceof ConstDec constDec) {
+            expressionIdent.setValue(constDec.val);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionNumLit(ExpressionNumLit expressionNumLit, Object arg) throws PLPException {
+        expressionNumLit.setValue(expressionNumLit.getFirstToken().getIntValue());
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionStringLit(ExpressionStringLit expressionStringLit, Object arg) throws PLPException {
+        expressionStringLit.setValue(expressionStringLit.getFirstToken().getStringValue());
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionBooleanLit(ExpressionBooleanLit expressionBooleanLit, Object arg) throws PLPException {
+        expressionBooleanLit.setValue(expressionBooleanLit.getFirstToken().getBooleanValue());
+        return null;
+    }
+
+    @Override
+    public Object visitProcedure(ProcDec procDec, Object arg) throws PLPException {
+        return visitBlock(procDec.block, arg);
+    }
+
+    @Override
+    public Object visitConstDec(ConstDec constDec, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementEmpty(StatementEmpty statementEmpty, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitIdent(Ident ident, Object arg) throws PLPException {
+        return null;
+    }
+}
@@ -1,53 +1,167 @@
 package edu.ufl.cise.plpfa22;
 
-import edu.ufl.cise.plpfa22.IToken.Kind;
-
 import java.util.*;
-import java.util.stream.Collectors;
 
-public class FSA {
-    private final FSANode start;
-    private Set<FSANode> currNodes = new HashSet<>();
-    //will be true if advance() resulted into at least one state transition
-    private boolean advanced = false;
+/**
+ * Deterministic automaton compiled from an {@link FSANode} NFA by subset construction.
+ * <p>
+ * States are plain {@code int} ids, {@link #START} being the epsilon closure of the NFA start node and {@link #DEAD}
+ * marking a missing transition. Transitions on ASCII characters live in a dense table; every other character is
+ * resolved through a per-state sorted list of ranges. Each accepting state carries the rank of the highest-priority
+ * token kind it recognizes, so the lexer never needs to look at the NFA again.
+ * <p>
+ * Instances are immutable once constructed and can be shared by any number of lexers, on any thread; each lexer
+ * keeps its own position and current state.
+ */
+public final class FSA {
+    public static final int DEAD = -1;
+    public static final int START = 0;
 
-    public FSA(FSANode start) {
-        this.start = start;
-        reset();
-    }
+    private static final int ASCII = 128;
+
+    //transitions on ASCII chars, indexed by (state * ASCII + ch)
+    private final int[] asciiNext;
+    //transitions on other chars: rangeStart[state] is sorted; range i covers [rangeStart[i], rangeStart[i + 1])
+    private final char[][] rangeStart;
+    private final int[][] rangeNext;
+    //rank (index in kindsByPriority) of the winning kind, -1 if the state is not accepting
+    private final int[] accepting;
+
+    public FSA(FSANode start, List<String> kindsByPriority) {
+        final Map<String, Integer> priority = new HashMap<>();
+        for (int i = 0; i < kindsByPriority.size(); i++) {
+            priority.put(kindsByPriority.get(i), i);
+        }
+
+        final Map<Set<FSANode>, Integer> ids = new HashMap<>();
+        final List<Set<FSANode>> states = new ArrayList<>();
+        final List<int[]> asciiRows = new ArrayList<>();
+        final List<char[]> starts = new ArrayList<>();
+        final List<int[]> nexts = new ArrayList<>();
+
+        final Set<FSANode> startSet = getEpsilonReachableNodes(Collections.singleton(start));
+        ids.put(startSet, START);
+        states.add(startSet);
 
-    //returns list of types of token recognized
-    public Set<String> advance(final char test) {
-        advanced = false;
-        currNodes = currNodes.stream().flatMap(curr -> curr.getNextNodes(test).stream()).collect(Collectors.toSet());
-        advanced = !currNodes.isEmpty();
+        for (int state = 0; state < states.size(); state++) {
+            final Set<FSANode> nodes = states.get(state);
+            final int[] row = new int[ASCII];
+            Arrays.fill(row, DEAD);
 
-        currNodes.addAll(getEpsilonReachableNodes(currNodes));
-        return currNodes.stream().filter(FSANode::isAccepting).map(FSANode::getKind).collect(Collectors.toSet());
+            //chars at which the transitions of some node of this state may change split the char set into intervals
+            //that all lead to the same state, so one representative char per interval is enough
+            final BitSet boundaries = new BitSet(Character.MAX_VALUE + 2);
+            boundaries.set(Character.MIN_VALUE);
+            boundaries.set(Character.MAX_VALUE + 1);
+            for (FSANode node : nodes) {
+                node.addBoundaries(boundaries);
+            }
+
+            final List<Character> rangeStarts = new ArrayList<>();
+            final List<Integer> rangeTargets = new ArrayList<>();
+            int lastTarget = DEAD;
+            for (int first = 0; first <= Character.MAX_VALUE; ) {
+                final int last = boundaries.nextSetBit(first + 1) - 1;
+                final int target = getTarget(nodes, (char) first, ids, states);
+                for (int ch = first; ch <= last && ch < ASCII; ch++) {
+                    row[ch] = target;
+                }
+                if (last >= ASCII && target != lastTarget) {
+                    rangeStarts.add((char) Math.max(first, ASCII));
+                    rangeTargets.add(target);
+                    lastTarget = target;
+                }
+                first = last + 1;
+            }
+
+            asciiRows.add(row);
+            final char[] stateStarts = new char[rangeStarts.size()];
+            final int[] stateNexts = new int[rangeTargets.size()];
+            for (int i = 0; i < stateStarts.length; i++) {
+                stateStarts[i] = rangeStarts.get(i);
+                stateNexts[i] = rangeTargets.get(i);
+            }
+            starts.add(stateStarts);
+            nexts.add(stateNexts);
+        }
+
+        final int numStates = states.size();
+        this.asciiNext = new int[numStates * ASCII];
+        this.rangeStart = starts.toArray(new char[0][]);
+        this.rangeNext = nexts.toArray(new int[0][]);
+        this.accepting = new int[numStates];
+        for (int state = 0; state < numStates; state++) {
+            System.arraycopy(asciiRows.get(state), 0, asciiNext, state * ASCII, ASCII);
+            accepting[state] = states.get(state).stream()
+                    .filter(FSANode::isAccepting)
+                    .mapToInt(node -> priority.get(node.getKind()))
+                    .min()
+                    .orElse(-1);
+        }
+    }
+
+    //returns id of the state reached from given set of nodes on given char, creating the state if it is new
+    private static int getTarget(final Set<FSANode> nodes, final char ch, final Map<Set<FSANode>, Integer> ids, final List<Set<FSANode>> states) {
+        final Set<FSANode> moved = new HashSet<>();
+        for (FSANode node : nodes) {
+            node.addNextNodes(ch, moved);
+        }
+        if (moved.isEmpty()) {
+            return DEAD;
+        }
+        final Set<FSANode> closure = getEpsilonReachableNodes(moved);
+        Integer id = ids.get(closure);
+        if (id == null) {
+            id = states.size();
+            ids.put(closure, id);
+            states.add(closure);
+        }
+        return id;
     }
 
     private static Set<FSANode> getEpsilonReachableNodes(final Set<FSANode> rootNodes) {
         //add nodes with epsilon transitions
-        final Queue<FSANode> queue = new LinkedList<>(rootNodes);
+        final Deque<FSANode> queue = new ArrayDeque<>(rootNodes);
         final Set<FSANode> epsilonReachableNodes = new HashSet<>();
         while (!queue.isEmpty()) {
             final FSANode curr = queue.poll();
 
-            if (epsilonReachableNodes.contains(curr)) {
+            if (!epsilonReachableNodes.add(curr)) {
                 continue;
             }
-            epsilonReachableNodes.add(curr);
             queue.addAll(curr.getNextNodes(null));
         }
         return epsilonReachableNodes;
     }
 
-    public void reset() {
-        currNodes.clear();
-        currNodes.addAll(getEpsilonReachableNodes(Collections.singleton(start)));
+    //returns the state reached from given state on given char, or DEAD
+    public int next(final int state, final char ch) {
+        if (ch < ASCII) {
+            return asciiNext[state * ASCII + ch];
+        }
+        final char[] starts = rangeStart[state];
+        //find the last range starting at or before ch
+        int low = 0;
+        int high = starts.length - 1;
+        int found = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (starts[mid] <= ch) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? DEAD : rangeNext[state][found];
+    }
+
+    //returns rank of the highest priority kind recognized in given state, or -1 if the state is not accepting
+    public int getAcceptingRank(final int state) {
+        return accepting[state];
     }
 
-    public boolean advanced() {
-        return advanced;
+    public int getNumStates() {
+        return accepting.length;
     }
 }
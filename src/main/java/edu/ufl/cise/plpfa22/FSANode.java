@@ -1,29 +1,75 @@
 package edu.ufl.cise.plpfa22;
 
-import edu.ufl.cise.plpfa22.IToken.Kind;
-
 import java.util.*;
 
 public class FSANode {
-    private final Map<Character, List<FSANode>> next;
+    private final List<FSANode> epsilonNext;
+    //edgeClasses.get(i) is the set of chars leading to edgeTargets.get(i); there is at most one edge per target
+    private final List<CharClass> edgeClasses;
+    private final List<FSANode> edgeTargets;
     private final boolean isAccepting;
     private final String kind;
 
     public FSANode(boolean isAccepting, String kind) {
-        this.next = new HashMap<>();
+        this.epsilonNext = new ArrayList<>(1);
+        this.edgeClasses = new ArrayList<>(1);
+        this.edgeTargets = new ArrayList<>(1);
         this.isAccepting = isAccepting;
         this.kind = kind;
     }
 
+    //null char adds an epsilon transition
     public void addTransition(final Character ch, final FSANode nextTransition) {
-        next.computeIfAbsent(ch, key -> new LinkedList<>()).add(nextTransition);
+        if (ch == null) {
+            epsilonNext.add(nextTransition);
+        } else {
+            addTransitions(CharClass.of(ch), nextTransition);
+        }
+    }
+
+    public void addTransitions(final CharClass chars, final FSANode nextTransition) {
+        final int index = edgeTargets.indexOf(nextTransition);
+        if (index >= 0) {
+            edgeClasses.set(index, edgeClasses.get(index).union(chars));
+        } else {
+            edgeClasses.add(chars);
+            edgeTargets.add(nextTransition);
+        }
     }
 
+    //null char returns the epsilon transitions
     public List<FSANode> getNextNodes(final Character ch) {
-        if (next.containsKey(ch)) {
-            return next.get(ch);
+        if (ch == null) {
+            return Collections.unmodifiableList(epsilonNext);
+        }
+        List<FSANode> nextNodes = Collections.emptyList();
+        final int num = edgeTargets.size();
+        for (int i = 0; i < num; i++) {
+            if (edgeClasses.get(i).contains(ch)) {
+                if (nextNodes.isEmpty()) {
+                    nextNodes = new ArrayList<>(1);
+                }
+                nextNodes.add(edgeTargets.get(i));
+            }
+        }
+        return nextNodes;
+    }
+
+    //adds the nodes reached on given char to the given set
+    void addNextNodes(final char ch, final Set<FSANode> nextNodes) {
+        final int num = edgeTargets.size();
+        for (int i = 0; i < num; i++) {
+            if (edgeClasses.get(i).contains(ch)) {
+                nextNodes.add(edgeTargets.get(i));
+            }
+        }
+    }
+
+    //marks the chars at which the set of transitions of this node may change
+    void addBoundaries(final BitSet boundaries) {
+        for (CharClass chars : edgeClasses) {
+            chars.addBoundaries(boundaries);
         }
-        return Collections.emptyList();
     }
 
     public boolean isAccepting() {
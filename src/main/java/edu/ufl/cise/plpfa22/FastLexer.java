@@ -0,0 +1,315 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.IToken.Kind;
+
+import static edu.ufl.cise.plpfa22.IToken.Kind.*;
+
+/**
+ * Direct-coded scanner for the PLP token set. It recognizes exactly the tokens of {@link Lexer} over the language
+ * automaton, but switches on the first char of each token and runs specialized loops instead of interpreting a
+ * transition table, and looks keywords up in a perfect hash table.
+ * <p>
+ * The end of the input behaves like the {@code '\0'} sentinel that {@link CompilerComponentFactory} appends for
+ * {@link Lexer}, so no copy of the input is needed.
+ */
+public class FastLexer implements ILexer {
+    private static final String[] KEYWORDS = {"CONST", "VAR", "PROCEDURE", "CALL", "BEGIN", "END", "IF", "THEN", "WHILE", "DO", "TRUE", "FALSE"};
+    private static final Kind[] KEYWORD_KINDS = {KW_CONST, KW_VAR, KW_PROCEDURE, KW_CALL, KW_BEGIN, KW_END, KW_IF, KW_THEN, KW_WHILE, KW_DO, BOOLEAN_LIT, BOOLEAN_LIT};
+    private static final int KEYWORD_TABLE_SIZE = 16;
+    private static final char[][] KEYWORD_TABLE = new char[KEYWORD_TABLE_SIZE][];
+    private static final Kind[] KEYWORD_TABLE_KINDS = new Kind[KEYWORD_TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            final char[] keyword = KEYWORDS[i].toCharArray();
+            final int hash = keywordHash(keyword, 0, keyword.length);
+            if (KEYWORD_TABLE[hash] != null) {
+                throw new IllegalStateException("Keyword hash is not perfect for " + KEYWORDS[i]);
+            }
+            KEYWORD_TABLE[hash] = keyword;
+            KEYWORD_TABLE_KINDS[hash] = KEYWORD_KINDS[i];
+        }
+    }
+
+    private final char[] input;
+    //length of the input including the virtual '\0' at its end
+    private final int length;
+    private final IdentifierTable identifiers;
+    private int currIndex;
+    private int tokenLine;
+    private int tokenColumn;
+
+    //token found by the last peek() and the position right after it, valid until next() moves past the token
+    private IToken peekedToken;
+    private int peekIndex;
+    private int peekLine;
+    private int peekColumn;
+
+    public FastLexer(String input) {
+        this.input = input == null ? new char[0] : input.toCharArray();
+        this.length = this.input.length + 1;
+        this.identifiers = new IdentifierTable();
+        this.currIndex = this.peekIndex = 0;
+        this.tokenLine = this.peekLine = 1;
+        this.tokenColumn = this.peekColumn = 1;
+    }
+
+    @Override
+    public IToken next() throws LexicalException {
+        final IToken nextToken = peek();
+        currIndex = peekIndex;
+        tokenLine = peekLine;
+        tokenColumn = peekColumn;
+        peekedToken = null;
+        return nextToken;
+    }
+
+    @Override
+    public IToken peek() throws LexicalException {
+        if (peekedToken == null) {
+            peekedToken = scanToken();
+        }
+        return peekedToken;
+    }
+
+    //finds the token starting at the current position and sets the peek position right after it
+    private IToken scanToken() throws LexicalException {
+        peekIndex = currIndex;
+        peekLine = tokenLine;
+        peekColumn = tokenColumn;
+
+        while (peekIndex < length) {
+            final int start = peekIndex;
+            final char ch = charAt(start);
+            switch (ch) {
+                case ' ', '\t' -> {
+                    peekIndex++;
+                    peekColumn++;
+                }
+                case '\r' -> {
+                    if (charAt(start + 1) == '\n') {
+                        newLine(2);
+                    } else {
+                        peekIndex++;
+                        peekColumn++;
+                    }
+                }
+                case '\n' -> newLine(1);
+                case '\0' -> {
+                    return createToken(EOF, 1);
+                }
+                case '.' -> {
+                    return createToken(DOT, 1);
+                }
+                case ',' -> {
+                    return createToken(COMMA, 1);
+                }
+                case ';' -> {
+                    return createToken(SEMI, 1);
+                }
+                case '(' -> {
+                    return createToken(LPAREN, 1);
+                }
+                case ')' -> {
+                    return createToken(RPAREN, 1);
+                }
+                case '+' -> {
+                    return createToken(PLUS, 1);
+                }
+                case '-' -> {
+                    return createToken(MINUS, 1);
+                }
+                case '*' -> {
+                    return createToken(TIMES, 1);
+                }
+                case '%' -> {
+                    return createToken(MOD, 1);
+                }
+                case '?' -> {
+                    return createToken(QUESTION, 1);
+                }
+                case '!' -> {
+                    return createToken(BANG, 1);
+                }
+                case '=' -> {
+                    return createToken(EQ, 1);
+                }
+                case '#' -> {
+                    return createToken(NEQ, 1);
+                }
+                case '<' -> {
+                    return charAt(start + 1) == '=' ? createToken(LE, 2) : createToken(LT, 1);
+                }
+                case '>' -> {
+                    return charAt(start + 1) == '=' ? createToken(GE, 2) : createToken(GT, 1);
+                }
+                case ':' -> {
+                    if (charAt(start + 1) != '=') {
+                        throw new LexicalException();
+                    }
+                    return createToken(ASSIGN, 2);
+                }
+                case '/' -> {
+                    final int commentLength = scanComment(start);
+                    if (commentLength == 0) {
+                        return createToken(DIV, 1);
+                    }
+                    newLine(commentLength);
+                }
+                case '"' -> {
+                    return createStringToken(scanString(start));
+                }
+                case '0' -> {
+                    return createToken(NUM_LIT, 1);
+                }
+                case '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
+                    int end = start + 1;
+                    while (isDigit(charAt(end))) {
+                        end++;
+                    }
+                    return createNumToken(end - start);
+                }
+                default -> {
+                    if (!isIdentStart(ch)) {
+                        throw new LexicalException();
+                    }
+                    int end = start + 1;
+                    while (isIdentStart(charAt(end)) || isDigit(charAt(end))) {
+                        end++;
+                    }
+                    return createToken(getIdentKind(start, end - start), end - start);
+                }
+            }
+        }
+        return TokenFactory.ofKind(EOF, "\0", null);
+    }
+
+    //returns the length of the comment starting at given index, or 0 if the '/' there is a DIV
+    private int scanComment(final int start) {
+        if (charAt(start + 1) != '/') {
+            return 0;
+        }
+        //a comment may also end at a '\0', but it goes on as long as a line break can still end it
+        int lastNull = -1;
+        int end = start + 2;
+        while (end < length) {
+            final char ch = charAt(end);
+            if (ch == '\n') {
+                return end + 1 - start;
+            } else if (ch == '\r') {
+                if (charAt(end + 1) == '\n') {
+                    return end + 2 - start;
+                }
+                break;
+            } else if (ch == '\0') {
+                lastNull = end;
+            }
+            end++;
+        }
+        return lastNull < 0 ? 0 : lastNull + 1 - start;
+    }
+
+    //returns the length of the string literal starting at given index
+    private int scanString(final int start) throws LexicalException {
+        int end = start + 1;
+        while (end < length) {
+            final char ch = charAt(end);
+            if (ch == '"') {
+                return end + 1 - start;
+            } else if (ch == '\\') {
+                if (!isEscapedSymbol(charAt(end + 1))) {
+                    throw new LexicalException();
+                }
+                end += 2;
+            } else {
+                end++;
+            }
+        }
+        throw new LexicalException();
+    }
+
+    private Kind getIdentKind(final int start, final int len) {
+        final int hash = keywordHash(input, start, len);
+        final char[] keyword = KEYWORD_TABLE[hash];
+        if (keyword == null || keyword.length != len) {
+            return IDENT;
+        }
+        for (int i = 0; i < len; i++) {
+            if (keyword[i] != input[start + i]) {
+                return IDENT;
+            }
+        }
+        return KEYWORD_TABLE_KINDS[hash];
+    }
+
+    private static int keywordHash(final char[] chars, final int start, final int len) {
+        return (2 * chars[start] + 6 * chars[start + len - 1] + len) & (KEYWORD_TABLE_SIZE - 1);
+    }
+
+    private void newLine(final int len) {
+        peekIndex += len;
+        peekLine++;
+        peekColumn = 1;
+    }
+
+    private IToken createToken(final Kind kind, final int len) {
+        final Token token = newToken(kind, len);
+        peekIndex += len;
+        peekColumn += len;
+        return token;
+    }
+
+    private IToken createNumToken(final int len) throws LexicalException {
+        final Token token = newToken(NUM_LIT, len);
+        try {
+            token.getIntValue();
+        } catch (NumberFormatException ex) {
+            throw new LexicalException("Invalid integer");
+        }
+        peekIndex += len;
+        peekColumn += len;
+        return token;
+    }
+
+    private IToken createStringToken(final int len) {
+        final StringToken token = (StringToken) newToken(STRING_LIT, len);
+        final int numNewLines = token.getNumNewLines();
+        peekLine += numNewLines;
+        if (numNewLines > 0) {
+            peekColumn = 1;
+        }
+        peekColumn += token.getLastLineLen();
+        peekIndex += len;
+        return token;
+    }
+
+    private Token newToken(final Kind kind, final int len) {
+        //only EOF can reach the virtual '\0' at the end
+        if (peekIndex + len > input.length) {
+            return TokenFactory.ofKind(kind, Token.getFixedText(EOF), 0, 1, peekLine, peekColumn, identifiers);
+        }
+        return TokenFactory.ofKind(kind, input, peekIndex, len, peekLine, peekColumn, identifiers);
+    }
+
+    //the char at given index, '\0' at and after the end of the input
+    private char charAt(final int index) {
+        return index < input.length ? input[index] : '\0';
+    }
+
+    private static boolean isDigit(final char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static boolean isIdentStart(final char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '$' || ch == '_';
+    }
+
+    private static boolean isEscapedSymbol(final char ch) {
+        for (char escaped : Token.ESCAPED_SYMBOLS) {
+            if (escaped == ch) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
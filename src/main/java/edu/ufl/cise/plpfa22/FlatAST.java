@@ -0,0 +1,375 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import edu.ufl.cise.plpfa22.ast.ASTVisitor;
+import edu.ufl.cise.plpfa22.ast.Block;
+import edu.ufl.cise.plpfa22.ast.ConstDec;
+import edu.ufl.cise.plpfa22.ast.Declaration;
+import edu.ufl.cise.plpfa22.ast.Expression;
+import edu.ufl.cise.plpfa22.ast.ExpressionBinary;
+import edu.ufl.cise.plpfa22.ast.ExpressionBooleanLit;
+import edu.ufl.cise.plpfa22.ast.ExpressionIdent;
+import edu.ufl.cise.plpfa22.ast.ExpressionNumLit;
+import edu.ufl.cise.plpfa22.ast.ExpressionStringLit;
+import edu.ufl.cise.plpfa22.ast.Ident;
+import edu.ufl.cise.plpfa22.ast.ProcDec;
+import edu.ufl.cise.plpfa22.ast.Program;
+import edu.ufl.cise.plpfa22.ast.Statement;
+import edu.ufl.cise.plpfa22.ast.StatementAssign;
+import edu.ufl.cise.plpfa22.ast.StatementBlock;
+import edu.ufl.cise.plpfa22.ast.StatementCall;
+import edu.ufl.cise.plpfa22.ast.StatementEmpty;
+import edu.ufl.cise.plpfa22.ast.StatementIf;
+import edu.ufl.cise.plpfa22.ast.StatementInput;
+import edu.ufl.cise.plpfa22.ast.StatementOutput;
+import edu.ufl.cise.plpfa22.ast.StatementWhile;
+import edu.ufl.cise.plpfa22.ast.Types.Type;
+import edu.ufl.cise.plpfa22.ast.VarDec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An AST stored in parallel primitive arrays instead of one object per node: the kind, the index of the first token in
+ * the TokenStream the program was parsed from, the number of nodes in the subtree, an extra token index (the operator
+ * of a binary expression, the value of a constant) and the decorations the visitors fill in. Nodes are
+ * stored in post-order, so the children of a node come right before it and the program is the last node.
+ * <p>
+ * The visitors work on AST objects, so the first {@link #visit(ASTVisitor, Object)} builds the object tree, which the
+ * later passes reuse, and each pass stores the new decorations back in the arrays when it is done. The tree is built
+ * again only after a node was added.
+ */
+public class FlatAST {
+    public enum NodeKind {
+        PROGRAM, BLOCK, CONST_DEC, VAR_DEC, PROC_DEC,
+        STATEMENT_ASSIGN, STATEMENT_CALL, STATEMENT_INPUT, STATEMENT_OUTPUT, STATEMENT_BLOCK, STATEMENT_IF, STATEMENT_WHILE, STATEMENT_EMPTY,
+        EXPRESSION_BINARY, EXPRESSION_IDENT, EXPRESSION_NUM_LIT, EXPRESSION_STRING_LIT, EXPRESSION_BOOLEAN_LIT,
+        IDENT
+    }
+
+    //extra token of a node that has none
+    public static final int NO_TOKEN = -1;
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+    private static final Type[] TYPES = Type.values();
+
+    private final TokenStream tokens;
+    private byte[] kinds;
+    private int[] firstTokens;
+    private int[] subtreeSizes;
+    private int[] extraTokens;
+    //decorations: ordinal of the type + 1, nest, and index of the declaration + 1, or of the operand a binary
+    //expression is simplified to + 1; 0 if not set
+    private byte[] types;
+    private int[] nests;
+    private int[] decs;
+    //values of the expressions known at compile time; null if not set
+    private Object[] values;
+    private boolean[] unreachable;
+    private boolean[] local;
+    private int size;
+    //object tree the passes run on, by index, and the index of each declaration in it; null until the first pass
+    private ASTNode[] view;
+    private Map<ASTNode, Integer> viewDeclarations;
+
+    FlatAST(TokenStream tokens, int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.tokens = tokens;
+        this.kinds = new byte[capacity];
+        this.firstTokens = new int[capacity];
+        this.subtreeSizes = new int[capacity];
+        this.extraTokens = new int[capacity];
+        this.types = new byte[capacity];
+        this.nests = new int[capacity];
+        this.decs = new int[capacity];
+        this.values = new Object[capacity];
+        this.unreachable = new boolean[capacity];
+        this.local = new boolean[capacity];
+        this.size = 0;
+    }
+
+    //adds a node whose descendants are the nodes from given index on, and returns its index
+    int add(final NodeKind kind, final int firstToken, final int extraToken, final int firstDescendant) {
+        if (size == kinds.length) {
+            grow();
+        }
+        view = null;
+        viewDeclarations = null;
+        kinds[size] = (byte) kind.ordinal();
+        firstTokens[size] = firstToken;
+        subtreeSizes[size] = size - firstDescendant + 1;
+        extraTokens[size] = extraToken;
+        return size++;
+    }
+
+    public TokenStream getTokens() {
+        return tokens;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getRoot() {
+        return size - 1;
+    }
+
+    public NodeKind getKind(final int node) {
+        return NODE_KINDS[kinds[checkNode(node)]];
+    }
+
+    public int getFirstToken(final int node) {
+        return firstTokens[checkNode(node)];
+    }
+
+    public int getExtraToken(final int node) {
+        return extraTokens[checkNode(node)];
+    }
+
+    public int getSubtreeSize(final int node) {
+        return subtreeSizes[checkNode(node)];
+    }
+
+    public int getChildCount(final int node) {
+        final int first = node - subtreeSizes[checkNode(node)] + 1;
+        int count = 0;
+        for (int child = node - 1; child >= first; child -= subtreeSizes[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    public int[] getChildren(final int node) {
+        final int[] children = new int[getChildCount(node)];
+        int child = node - 1;
+        for (int i = children.length - 1; i >= 0; i--) {
+            children[i] = child;
+            child -= subtreeSizes[child];
+        }
+        return children;
+    }
+
+    //null if not set
+    public Type getType(final int node) {
+        final int type = types[checkNode(node)];
+        return type == 0 ? null : TYPES[type - 1];
+    }
+
+    public int getNest(final int node) {
+        return nests[checkNode(node)];
+    }
+
+    //index of the declaration an identifier refers to, or -1 if not set
+    public int getDec(final int node) {
+        return decs[checkNode(node)] - 1;
+    }
+
+    public Object getValue(final int node) {
+        return values[checkNode(node)];
+    }
+
+    public boolean isUnreachable(final int node) {
+        return unreachable[checkNode(node)];
+    }
+
+    public boolean isLocal(final int node) {
+        return local[checkNode(node)];
+    }
+
+    //index of the operand a binary expression is simplified to, or -1 if not set
+    public int getSimplified(final int node) {
+        return getKind(node) == NodeKind.EXPRESSION_BINARY ? decs[node] - 1 : -1;
+    }
+
+    //builds a new object tree with the current decorations, apart from the one the passes run on
+    public Program toProgram() {
+        return (Program) toNodes(new IdentityHashMap<>())[getRoot()];
+    }
+
+    //runs the visitor on the object tree and keeps the decorations it made
+    public Object visit(final ASTVisitor v, final Object arg) throws PLPException {
+        if (view == null) {
+            viewDeclarations = new IdentityHashMap<>();
+            view = toNodes(viewDeclarations);
+        }
+        final ASTNode[] nodes = view;
+        final Map<ASTNode, Integer> declarations = viewDeclarations;
+        try {
+            return nodes[getRoot()].visit(v, arg);
+        } finally {
+            //a pass that failed may still have decorated a part of the tree, as with the object AST
+            for (int i = 0; i < size; i++) {
+                final ASTNode node = nodes[i];
+                if (node instanceof Declaration declaration) {
+                    types[i] = typeCode(declaration.getType());
+                    nests[i] = declaration.getNest();
+                    unreachable[i] = node instanceof ProcDec procDec && procDec.isUnreachable();
+                    local[i] = node instanceof VarDec varDec && varDec.isLocal();
+                } else if (node instanceof ExpressionIdent expressionIdent) {
+                    types[i] = typeCode(expressionIdent.getType());
+                    nests[i] = expressionIdent.getNest();
+                    decs[i] = decCode(declarations, expressionIdent.getDec());
+                    values[i] = expressionIdent.getValue();
+                } else if (node instanceof ExpressionBinary expressionBinary) {
+                    types[i] = typeCode(expressionBinary.getType());
+                    values[i] = expressionBinary.getValue();
+                    //the operands are the last node before this one and the one before its subtree
+                    final Expression simplified = expressionBinary.getSimplified();
+                    final int e1 = i - 1;
+                    decs[i] = simplified == null ? 0 : (simplified == nodes[e1] ? e1 : e1 - subtreeSizes[e1]) + 1;
+                } else if (node instanceof Expression expression) {
+                    types[i] = typeCode(expression.getType());
+                    values[i] = expression.getValue();
+                } else if (node instanceof Ident ident) {
+                    nests[i] = ident.getNest();
+                    decs[i] = decCode(declarations, ident.getDec());
+                }
+            }
+        }
+    }
+
+    private static byte typeCode(final Type type) {
+        return (byte) (type == null ? 0 : type.ordinal() + 1);
+    }
+
+    private static int decCode(final Map<ASTNode, Integer> declarations, final Declaration dec) {
+        final Integer index = dec == null ? null : declarations.get(dec);
+        return index == null ? 0 : index + 1;
+    }
+
+    //object of each node by index, built bottom up without recursion; declarations are mapped to their index
+    private ASTNode[] toNodes(final Map<ASTNode, Integer> declarations) {
+        final ASTNode[] nodes = new ASTNode[size];
+        //tokens are shared between nodes, as the parser does
+        final IToken[] tokenObjects = new IToken[tokens.size()];
+        //objects of the nodes whose parent is not built yet, in order
+        final ASTNode[] pending = new ASTNode[size];
+        int pendingCount = 0;
+        for (int i = 0; i < size; i++) {
+            final int childCount = getChildCount(i);
+            pendingCount -= childCount;
+            final ASTNode node = toNode(i, pending, pendingCount, childCount, tokenObjects);
+            pending[pendingCount++] = node;
+            nodes[i] = node;
+            if (node instanceof Declaration) {
+                declarations.put(node, i);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            final ASTNode node = nodes[i];
+            final Type type = getType(i);
+            if (node instanceof Declaration declaration) {
+                declaration.setType(type);
+                declaration.setNest(nests[i]);
+                if (node instanceof ProcDec procDec) {
+                    procDec.setUnreachable(unreachable[i]);
+                } else if (node instanceof VarDec varDec) {
+                    varDec.setLocal(local[i]);
+                }
+            } else if (node instanceof ExpressionIdent expressionIdent) {
+                expressionIdent.setType(type);
+                expressionIdent.setNest(nests[i]);
+                expressionIdent.setDec(decs[i] == 0 ? null : (Declaration) nodes[decs[i] - 1]);
+                expressionIdent.setValue(values[i]);
+            } else if (node instanceof ExpressionBinary expressionBinary) {
+                expressionBinary.setType(type);
+                expressionBinary.setValue(values[i]);
+                expressionBinary.setSimplified(decs[i] == 0 ? null : (Expression) nodes[decs[i] - 1]);
+            } else if (node instanceof Expression expression) {
+                expression.setType(type);
+                expression.setValue(values[i]);
+            } else if (node instanceof Ident ident) {
+                ident.setNest(nests[i]);
+                ident.setDec(decs[i] == 0 ? null : (Declaration) nodes[decs[i] - 1]);
+            }
+        }
+        return nodes;
+    }
+
+    private ASTNode toNode(final int i, final ASTNode[] children, final int first, final int count, final IToken[] tokenObjects) {
+        final IToken token = token(firstTokens[i], tokenObjects);
+        return switch (NODE_KINDS[kinds[i]]) {
+            case PROGRAM -> {
+                final Block block = (Block) children[first];
+                yield new Program(block.firstToken, block);
+            }
+            case BLOCK -> {
+                final List<ConstDec> constDecs = new ArrayList<>();
+                final List<VarDec> varDecs = new ArrayList<>();
+                final List<ProcDec> procDecs = new ArrayList<>();
+                for (int c = first; c < first + count - 1; c++) {
+                    if (children[c] instanceof ConstDec constDec) {
+                        constDecs.add(constDec);
+                    } else if (children[c] instanceof VarDec varDec) {
+                        varDecs.add(varDec);
+                    } else {
+                        procDecs.add((ProcDec) children[c]);
+                    }
+                }
+                yield new Block(token, constDecs, varDecs, procDecs, (Statement) children[first + count - 1]);
+            }
+            case CONST_DEC -> {
+                final IToken value = token(extraTokens[i], tokenObjects);
+                final Object val = switch (value.getKind()) {
+                    case NUM_LIT -> value.getIntValue();
+                    case STRING_LIT -> value.getStringValue();
+                    default -> value.getBooleanValue();
+                };
+                yield new ConstDec(token, token, val);
+            }
+            case VAR_DEC -> new VarDec(token, token);
+            case PROC_DEC -> new ProcDec(token, token, (Block) children[first]);
+            case STATEMENT_ASSIGN -> new StatementAssign(token, (Ident) children[first], (Expression) children[first + 1]);
+            case STATEMENT_CALL -> new StatementCall(token, (Ident) children[first]);
+            case STATEMENT_INPUT -> new StatementInput(token, (Ident) children[first]);
+            case STATEMENT_OUTPUT -> new StatementOutput(token, (Expression) children[first]);
+            case STATEMENT_BLOCK -> {
+                final List<Statement> statements = new ArrayList<>(count);
+                for (int c = first; c < first + count; c++) {
+                    statements.add((Statement) children[c]);
+                }
+                yield new StatementBlock(token, statements);
+            }
+            case STATEMENT_IF -> new StatementIf(token, (Expression) children[first], (Statement) children[first + 1]);
+            case STATEMENT_WHILE -> new StatementWhile(token, (Expression) children[first], (Statement) children[first + 1]);
+            case STATEMENT_EMPTY -> new StatementEmpty(token);
+            case EXPRESSION_BINARY -> new ExpressionBinary(token, (Expression) children[first], token(extraTokens[i], tokenObjects), (Expression) children[first + 1]);
+            case EXPRESSION_IDENT -> new ExpressionIdent(token);
+            case EXPRESSION_NUM_LIT -> new ExpressionNumLit(token);
+            case EXPRESSION_STRING_LIT -> new ExpressionStringLit(token);
+            case EXPRESSION_BOOLEAN_LIT -> new ExpressionBooleanLit(token);
+            case IDENT -> new Ident(token);
+        };
+    }
+
+    private IToken token(final int index, final IToken[] tokenObjects) {
+        IToken token = tokenObjects[index];
+        if (token == null) {
+            token = tokenObjects[index] = tokens.tokenAt(index);
+        }
+        return token;
+    }
+
+    private int checkNode(final int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Node " + node + " out of range for " + size + " nodes");
+        }
+        return node;
+    }
+
+    private void grow() {
+        final int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        firstTokens = Arrays.copyOf(firstTokens, capacity);
+        subtreeSizes = Arrays.copyOf(subtreeSizes, capacity);
+        extraTokens = Arrays.copyOf(extraTokens, capacity);
+        types = Arrays.copyOf(types, capacity);
+        nests = Arrays.copyOf(nests, capacity);
+        decs = Arrays.copyOf(decs, capacity);
+        values = Arrays.copyOf(values, capacity);
+        unreachable = Arrays.copyOf(unreachable, capacity);
+        local = Arrays.copyOf(local, capacity);
+    }
+}
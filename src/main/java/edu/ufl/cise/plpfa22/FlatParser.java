@@ -0,0 +1,170 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.FlatAST.NodeKind;
+import edu.ufl.cise.plpfa22.IToken.Kind;
+
+import static edu.ufl.cise.plpfa22.FlatAST.NO_TOKEN;
+import static edu.ufl.cise.plpfa22.IToken.Kind.*;
+import static edu.ufl.cise.plpfa22.Parser.BINARY_PRECEDENCE;
+import static edu.ufl.cise.plpfa22.Parser.RELATIONAL_PRECEDENCE;
+
+/**
+ * Parses a token stream into a FlatAST with the same grammar and node structure as {@link Parser}, reading only the
+ * kinds of the entries, so that neither tokens nor nodes are created. When the program has an error the Parser is run
+ * on the stream to throw the same exception it would have thrown.
+ */
+class FlatParser {
+    private final TokenStream tokens;
+    private final FlatAST ast;
+    private int index;
+
+    FlatParser(TokenStream tokens) {
+        this.tokens = tokens;
+        this.ast = new FlatAST(tokens, tokens.size());
+        this.index = 0;
+    }
+
+    FlatAST parse() throws PLPException {
+        final int block = getBlock();
+        match(DOT);
+        match(EOF);
+        ast.add(NodeKind.PROGRAM, ast.getFirstToken(block), NO_TOKEN, 0);
+        return ast;
+    }
+
+    private int getBlock() throws PLPException {
+        final int begin = ast.size();
+        int firstToken = NO_TOKEN;
+        while (kind() == KW_CONST) {
+            if (firstToken == NO_TOKEN) firstToken = index;
+            do {
+                index++;
+                final int ident = match(IDENT);
+                match(EQ);
+                final Kind valueKind = kind();
+                if (valueKind != NUM_LIT && valueKind != STRING_LIT && valueKind != BOOLEAN_LIT) throw fail();
+                ast.add(NodeKind.CONST_DEC, ident, index++, ast.size());
+            } while (kind() == COMMA);
+            match(SEMI);
+        }
+        while (kind() == KW_VAR) {
+            if (firstToken == NO_TOKEN) firstToken = index;
+            do {
+                index++;
+                ast.add(NodeKind.VAR_DEC, match(IDENT), NO_TOKEN, ast.size());
+            } while (kind() == COMMA);
+            match(SEMI);
+        }
+        while (kind() == KW_PROCEDURE) {
+            if (firstToken == NO_TOKEN) firstToken = index;
+            index++;
+            final int procBegin = ast.size();
+            final int ident = match(IDENT);
+            match(SEMI);
+            getBlock();
+            ast.add(NodeKind.PROC_DEC, ident, NO_TOKEN, procBegin);
+            match(SEMI);
+        }
+        final int statement = getStatement();
+        if (firstToken == NO_TOKEN) firstToken = ast.getFirstToken(statement);
+        return ast.add(NodeKind.BLOCK, firstToken, NO_TOKEN, begin);
+    }
+
+    private int getStatement() throws PLPException {
+        final int begin = ast.size();
+        final int first = index;
+        switch (kind()) {
+            case IDENT -> {
+                index++;
+                ast.add(NodeKind.IDENT, first, NO_TOKEN, ast.size());
+                match(ASSIGN);
+                getExpression(RELATIONAL_PRECEDENCE);
+                return ast.add(NodeKind.STATEMENT_ASSIGN, first, NO_TOKEN, begin);
+            }
+            case KW_CALL, QUESTION -> {
+                index++;
+                ast.add(NodeKind.IDENT, match(IDENT), NO_TOKEN, ast.size());
+                return ast.add(tokens.getKind(first) == KW_CALL ? NodeKind.STATEMENT_CALL : NodeKind.STATEMENT_INPUT, first, NO_TOKEN, begin);
+            }
+            case BANG -> {
+                index++;
+                getExpression(RELATIONAL_PRECEDENCE);
+                return ast.add(NodeKind.STATEMENT_OUTPUT, first, NO_TOKEN, begin);
+            }
+            case KW_BEGIN -> {
+                index++;
+                getStatement();
+                while (kind() == SEMI) {
+                    index++;
+                    getStatement();
+                }
+                match(KW_END);
+                return ast.add(NodeKind.STATEMENT_BLOCK, first, NO_TOKEN, begin);
+            }
+            case KW_IF, KW_WHILE -> {
+                index++;
+                getExpression(RELATIONAL_PRECEDENCE);
+                final boolean isIf = tokens.getKind(first) == KW_IF;
+                match(isIf ? KW_THEN : KW_DO);
+                getStatement();
+                return ast.add(isIf ? NodeKind.STATEMENT_IF : NodeKind.STATEMENT_WHILE, first, NO_TOKEN, begin);
+            }
+            //the FOLLOW set of a statement
+            case DOT, SEMI, KW_END -> {
+                return ast.add(NodeKind.STATEMENT_EMPTY, first, NO_TOKEN, begin);
+            }
+            default -> throw fail();
+        }
+    }
+
+    //same precedence climbing as the Parser
+    private int getExpression(final int minPrecedence) throws PLPException {
+        final int begin = ast.size();
+        final int first = index;
+        int expression = getPrimaryExpression();
+        int precedence = BINARY_PRECEDENCE[kind().ordinal()];
+        while (precedence >= minPrecedence) {
+            final int op = index++;
+            getExpression(precedence + 1);
+            expression = ast.add(NodeKind.EXPRESSION_BINARY, first, op, begin);
+            precedence = BINARY_PRECEDENCE[kind().ordinal()];
+        }
+        return expression;
+    }
+
+    private int getPrimaryExpression() throws PLPException {
+        final NodeKind nodeKind;
+        switch (kind()) {
+            case IDENT -> nodeKind = NodeKind.EXPRESSION_IDENT;
+            case NUM_LIT -> nodeKind = NodeKind.EXPRESSION_NUM_LIT;
+            case STRING_LIT -> nodeKind = NodeKind.EXPRESSION_STRING_LIT;
+            case BOOLEAN_LIT -> nodeKind = NodeKind.EXPRESSION_BOOLEAN_LIT;
+            case LPAREN -> {
+                index++;
+                final int expression = getExpression(RELATIONAL_PRECEDENCE);
+                match(RPAREN);
+                return expression;
+            }
+            default -> throw fail();
+        }
+        return ast.add(nodeKind, index++, NO_TOKEN, ast.size());
+    }
+
+    private Kind kind() {
+        return tokens.getKind(index);
+    }
+
+    //index of the next token if it is of given kind
+    private int match(final Kind kind) throws PLPException {
+        if (kind() != kind) throw fail();
+        //the last entry is never consumed, as it is an ERROR or the end entry after the EOF
+        return index++;
+    }
+
+    //throws the exception of the Parser for this program; a lexical error is found at its ERROR entry
+    private PLPException fail() throws PLPException {
+        tokens.seek(0);
+        new Parser(tokens).parse();
+        throw new IllegalStateException("Parser accepted a program rejected at token " + index);
+    }
+}
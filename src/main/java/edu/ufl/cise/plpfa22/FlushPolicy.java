@@ -0,0 +1,11 @@
+package edu.ufl.cise.plpfa22;
+
+//when PLPRuntime writes the output of the ! statements it buffered; a full buffer is written under every policy
+public enum FlushPolicy {
+    //only when the run method of the program returns or fails
+    EXIT,
+    //also before each ? statement, so that a prompt is seen before the program waits for input
+    INPUT,
+    //also once the flush size of chars was buffered since the output was last written
+    EVERY_N
+}
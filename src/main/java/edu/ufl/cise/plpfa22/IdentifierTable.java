@@ -0,0 +1,72 @@
+package edu.ufl.cise.plpfa22;
+
+/**
+ * Interns the spellings of identifiers found by one lexer, so that every token of the same identifier returns the same
+ * String from getStringValue() and the String is created only the first time the identifier is seen.
+ */
+final class IdentifierTable {
+    //open addressing with linear probing, at most half full
+    private String[] table;
+    private int size;
+
+    IdentifierTable() {
+        this.table = new String[64];
+        this.size = 0;
+    }
+
+    String intern(final char[] source, final int offset, final int length) {
+        final int hash = hash(source, offset, length);
+        int index = spread(hash) & (table.length - 1);
+        for (String entry = table[index]; entry != null; entry = table[index]) {
+            if (entry.hashCode() == hash && matches(entry, source, offset, length)) {
+                return entry;
+            }
+            index = (index + 1) & (table.length - 1);
+        }
+        final String identifier = new String(source, offset, length);
+        table[index] = identifier;
+        if (++size * 2 > table.length) {
+            grow();
+        }
+        return identifier;
+    }
+
+    private void grow() {
+        final String[] old = table;
+        table = new String[old.length * 2];
+        for (String entry : old) {
+            if (entry != null) {
+                int index = spread(entry.hashCode()) & (table.length - 1);
+                while (table[index] != null) {
+                    index = (index + 1) & (table.length - 1);
+                }
+                table[index] = entry;
+            }
+        }
+    }
+
+    //same as String.hashCode(), so the hash of an entry is cached by the String itself
+    private static int hash(final char[] source, final int offset, final int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + source[i];
+        }
+        return hash;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(final String entry, final char[] source, final int offset, final int length) {
+        if (entry.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (entry.charAt(i) != source[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,453 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.IToken.Kind;
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import edu.ufl.cise.plpfa22.ast.Block;
+import edu.ufl.cise.plpfa22.ast.ProcDec;
+import edu.ufl.cise.plpfa22.ast.Program;
+import edu.ufl.cise.plpfa22.ast.Statement;
+import edu.ufl.cise.plpfa22.ast.StatementBlock;
+import edu.ufl.cise.plpfa22.ast.StatementIf;
+import edu.ufl.cise.plpfa22.ast.StatementWhile;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static edu.ufl.cise.plpfa22.IToken.Kind.*;
+
+/**
+ * Keeps the token stream and AST of a source that is edited, e.g. in an editor, and updates them for each edit
+ * instead of lexing and parsing the whole source again.
+ * <p>
+ * An edit is lexed again from the last line break in front of it, which no earlier token can have looked past, until
+ * a token after the edit is found again; from there on the old entries are reused, moved by the length and line count
+ * of the edit, and on the line of that token also by the change of its column. Only the smallest statement, block or procedure declaration that
+ * holds all changed tokens is parsed again, and it is only used if it ends at the same token as before; otherwise the
+ * next larger one is tried, up to the whole program. The nodes around it are copied with the new child, all other
+ * nodes are reused.
+ * <p>
+ * Tokens are reused as well, and each edit moves them in place to the new source: a token after the edited text gets
+ * its new offset, line and column. The ASTs returned by edit share their nodes and tokens, so an AST returned before an
+ * edit is invalidated by it: its nodes after the edit report the new positions, and those of replaced nodes are left
+ * behind. A caller that answers a request about an earlier version, e.g. a language server, must take the positions it
+ * needs before the next edit.
+ * <p>
+ * The lexing and parsing of an edit are proportional to the edit. Copying the source and the entries of the token
+ * stream, and moving the tokens to the new source, are still linear in the length of the source, but only copy fields.
+ */
+public class IncrementalParser implements IParser {
+    private final FSA fsa;
+    //the text followed by the '\0' the lexer stops at
+    private char[] source;
+    private TokenStream stream;
+    //token of each stream entry, null for an ERROR; the AST holds these objects
+    private IToken[] tokens;
+    //first token and the token right after each statement, block and procedure block, as indices change with each edit
+    private final Map<ASTNode, IToken[]> spans = new IdentityHashMap<>();
+    //null until parsed and after a failed parse
+    private Program ast;
+
+    IncrementalParser(String input, FSA fsa) {
+        this.fsa = fsa;
+        this.source = (input + "\0").toCharArray();
+        this.stream = new Lexer(source, 0, source.length, fsa).toTokenStream();
+        this.tokens = new IToken[stream.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = stream.tokenAt(i);
+        }
+    }
+
+    @Override
+    public ASTNode parse() throws PLPException {
+        if (ast == null) {
+            parseProgram();
+        }
+        return ast;
+    }
+
+    public String getText() {
+        return new String(source, 0, source.length - 1);
+    }
+
+    public TokenStream getTokenStream() {
+        return stream;
+    }
+
+    /**
+     * Replaces deletedLength chars at offset with insertedText and returns the AST of the new text. A syntax or lexical
+     * error in the new text is thrown; the next edit then parses the whole program again.
+     */
+    public ASTNode edit(final int offset, final int deletedLength, final String insertedText) throws PLPException {
+        final int textLength = source.length - 1;
+        if (offset < 0 || deletedLength < 0 || offset + deletedLength > textLength) {
+            throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + deletedLength) + ") out of range for length " + textLength);
+        }
+        final int delta = insertedText.length() - deletedLength;
+        final char[] newSource = new char[source.length + delta];
+        System.arraycopy(source, 0, newSource, 0, offset);
+        insertedText.getChars(0, insertedText.length(), newSource, offset);
+        System.arraycopy(source, offset + deletedLength, newSource, offset + insertedText.length(), source.length - offset - deletedLength);
+
+        //entries ending before the last line break in front of the edit stay, the last of them is lexed again to start
+        //the lexer in the right line and column
+        int lineBreak = offset - 1;
+        while (lineBreak >= 0 && source[lineBreak] != '\n') {
+            lineBreak--;
+        }
+        int low = 0;
+        int high = stream.size() - 1;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (stream.getStart(mid) < lineBreak) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int restart = low;
+        while (restart > 0 && stream.getStart(restart - 1) + stream.getLength(restart - 1) > lineBreak) {
+            restart--;
+        }
+        restart = Math.max(restart - 1, 0);
+
+        final TokenStream newStream = new TokenStream(newSource, stream.size() + 16);
+        newStream.append(stream, 0, restart, 0, 0);
+        final Lexer lexer = restart == 0
+                ? new Lexer(newSource, 0, newSource.length, fsa)
+                : new Lexer(newSource, stream.getStart(restart), newSource.length, stream.getLine(restart), stream.getColumn(restart), fsa);
+        final int editEnd = offset + insertedText.length();
+        //old and new index of the first entry after the lexed ones
+        int oldResume = stream.size();
+        int newResume = -1;
+        int lineDelta = 0;
+        int columnDelta = 0;
+        //new index of the first reused entry on a later line than the first one, which need not move to another column
+        int columnsResume = -1;
+        while (lexer.lexInto(newStream)) {
+            final int i = newStream.size() - 1;
+            final int start = newStream.getStart(i);
+            if (start >= editEnd) {
+                final int old = stream.indexOfStart(start - delta);
+                if (old >= 0 && stream.getKind(old) == newStream.getKind(i) && stream.getLength(old) == newStream.getLength(i)) {
+                    //the lexer sees the same text as at the old entry, so it finds the same tokens, moved by the
+                    //difference of the positions until the next line break
+                    lineDelta = newStream.getLine(i) - stream.getLine(old);
+                    columnDelta = newStream.getColumn(i) - stream.getColumn(old);
+                    newStream.truncate(i);
+                    newStream.append(stream, old, stream.size(), delta, lineDelta);
+                    oldResume = old;
+                    newResume = i;
+                    columnsResume = i;
+                    while (columnsResume < newStream.size() && newStream.getLine(columnsResume) == newStream.getLine(i)) {
+                        columnsResume++;
+                    }
+                    newStream.shiftColumns(i, columnsResume, columnDelta);
+                    break;
+                }
+            }
+        }
+        if (newResume < 0) {
+            newResume = newStream.size();
+        }
+        //lexed tokens in front of the edit are usually the same as before
+        int firstChanged = restart;
+        while (firstChanged < newResume && firstChanged < oldResume && firstChanged < stream.size() - 1
+                && stream.getStart(firstChanged) + stream.getLength(firstChanged) <= offset
+                && sameEntry(stream, newStream, firstChanged)) {
+            firstChanged++;
+        }
+
+        final boolean changed = firstChanged < oldResume || firstChanged < newResume;
+
+        //the nodes are found with the old token positions, before the tokens are moved
+        final List<ASTNode> path = new ArrayList<>();
+        final List<int[]> ranges = new ArrayList<>();
+        if (ast != null && changed) {
+            findEnclosingUnits(firstChanged, oldResume, path, ranges);
+        }
+
+        final IToken[] newTokens = new IToken[newStream.size()];
+        for (int i = 0; i < firstChanged; i++) {
+            newTokens[i] = rebase(tokens[i], newSource, 0, 0, 0);
+        }
+        for (int i = firstChanged; i < newResume; i++) {
+            newTokens[i] = newStream.tokenAt(i);
+        }
+        for (int i = newResume; i < newTokens.length - 1; i++) {
+            newTokens[i] = rebase(tokens[i - newResume + oldResume], newSource, delta, lineDelta, i < columnsResume ? columnDelta : 0);
+        }
+        if (newResume < newTokens.length) {
+            newTokens[newTokens.length - 1] = newStream.tokenAt(newTokens.length - 1);
+        }
+        source = newSource;
+        stream = newStream;
+        tokens = newTokens;
+
+        if (ast == null) {
+            parseProgram();
+            return ast;
+        }
+        for (int i = path.size() - 1; i > 0; i--) {
+            final int[] range = ranges.get(i);
+            final int end = range[1] - oldResume + newResume;
+            final ASTNode replacement = reparse(path.get(i), range[0], end);
+            if (replacement != null) {
+                splice(path, ranges, i, replacement, oldResume, newResume);
+                return ast;
+            }
+        }
+        if (changed) {
+            //nothing smaller than the program holds the change
+            parseProgram();
+        }
+        return ast;
+    }
+
+    private static boolean sameEntry(final TokenStream a, final TokenStream b, final int i) {
+        return a.getKind(i) == b.getKind(i) && a.getStart(i) == b.getStart(i) && a.getLength(i) == b.getLength(i)
+                && a.getLine(i) == b.getLine(i) && a.getColumn(i) == b.getColumn(i);
+    }
+
+    //moves a reused token in place, so the ASTs returned before see it move as well
+    private static IToken rebase(final IToken token, final char[] source, final int offsetDelta, final int lineDelta, final int columnDelta) {
+        ((Token) token).rebase(source, offsetDelta, lineDelta, columnDelta);
+        return token;
+    }
+
+    //collects the program and each node below it whose tokens hold the old entries [first, last), with their ranges
+    private void findEnclosingUnits(final int first, final int last, final List<ASTNode> path, final List<int[]> ranges) {
+        path.add(ast);
+        ranges.add(new int[]{0, stream.size() - 1});
+        ASTNode node = ast.block;
+        while (node != null) {
+            final int[] range = rangeOf(node);
+            if (range == null || range[0] > first || range[1] < last) {
+                return;
+            }
+            path.add(node);
+            ranges.add(range);
+            ASTNode next = null;
+            if (node instanceof Block block) {
+                for (ProcDec procDec : block.procedureDecs) {
+                    final int[] procRange = rangeOf(procDec);
+                    if (procRange != null && procRange[0] <= first && procRange[1] >= last) {
+                        next = procDec;
+                        break;
+                    }
+                }
+                if (next == null) {
+                    next = block.statement;
+                }
+            } else if (node instanceof ProcDec procDec) {
+                next = procDec.block;
+            } else if (node instanceof StatementBlock statementBlock) {
+                for (Statement statement : statementBlock.statements) {
+                    final int[] statementRange = rangeOf(statement);
+                    if (statementRange != null && statementRange[0] <= first && statementRange[1] >= last) {
+                        next = statement;
+                        break;
+                    }
+                }
+            } else if (node instanceof StatementIf statementIf) {
+                next = statementIf.statement;
+            } else if (node instanceof StatementWhile statementWhile) {
+                next = statementWhile.statement;
+            }
+            node = next;
+        }
+    }
+
+    //index of the first token and of the token right after the node, or null if not known
+    private int[] rangeOf(final ASTNode node) {
+        if (node instanceof ProcDec procDec) {
+            //PROCEDURE ident ; block ;
+            final int[] blockRange = rangeOf(procDec.block);
+            final int ident = indexOf(procDec.ident);
+            return blockRange == null || ident < 1 ? null : new int[]{ident - 1, blockRange[1] + 1};
+        }
+        final IToken[] span = spans.get(node);
+        if (span == null) {
+            return null;
+        }
+        final int start = indexOf(span[0]);
+        final int end = indexOf(span[1]);
+        return start < 0 || end < 0 ? null : new int[]{start, end};
+    }
+
+    private int indexOf(final IToken token) {
+        final int i = stream.indexOfStart(((Token) token).getOffset());
+        return i >= 0 && tokens[i] == token ? i : -1;
+    }
+
+    //parses a node of the same kind from tokens [start, end), or returns null if that fails or ends elsewhere
+    private ASTNode reparse(final ASTNode node, final int start, final int end) {
+        final SpanRecordingParser parser = new SpanRecordingParser(new TokenArrayLexer(start));
+        try {
+            final ASTNode replacement;
+            if (node instanceof Statement) {
+                replacement = parser.getStatementAST();
+            } else if (node instanceof Block) {
+                replacement = parser.getBlockAST();
+            } else {
+                replacement = parser.getProcDecAST();
+            }
+            if (parser.lexer.index == end) {
+                return replacement;
+            }
+        } catch (PLPException ex) {
+            //a larger node is parsed instead
+        }
+        for (ASTNode recorded : parser.recorded) {
+            spans.remove(recorded);
+        }
+        return null;
+    }
+
+    //puts the replacement for path[i] into copies of the nodes above it
+    private void splice(final List<ASTNode> path, final List<int[]> ranges, final int i, final ASTNode replacement, final int oldResume, final int newResume) {
+        removeSpans(path.get(i));
+        ASTNode oldChild = path.get(i);
+        ASTNode newChild = replacement;
+        for (int j = i - 1; j >= 0; j--) {
+            final ASTNode parent = path.get(j);
+            final int start = ranges.get(j)[0];
+            final int end = ranges.get(j)[1] - oldResume + newResume;
+            //the first token of a statement or block is the first of its range, which may have been lexed again
+            final IToken firstToken = tokens[start];
+            final ASTNode newParent;
+            if (parent instanceof Program) {
+                final Block block = (Block) newChild;
+                newParent = new Program(block.firstToken, block);
+            } else if (parent instanceof ProcDec procDec) {
+                newParent = new ProcDec(procDec.firstToken, procDec.ident, (Block) newChild);
+            } else if (parent instanceof Block block) {
+                if (newChild instanceof ProcDec) {
+                    final List<ProcDec> procDecs = new ArrayList<>(block.procedureDecs);
+                    procDecs.set(procDecs.indexOf(oldChild), (ProcDec) newChild);
+                    newParent = new Block(firstToken, block.constDecs, block.varDecs, procDecs, block.statement);
+                } else {
+                    newParent = new Block(firstToken, block.constDecs, block.varDecs, block.procedureDecs, (Statement) newChild);
+                }
+            } else if (parent instanceof StatementBlock statementBlock) {
+                final List<Statement> statements = new ArrayList<>(statementBlock.statements);
+                statements.set(statements.indexOf(oldChild), (Statement) newChild);
+                newParent = new StatementBlock(firstToken, statements);
+            } else if (parent instanceof StatementIf statementIf) {
+                newParent = new StatementIf(firstToken, statementIf.expression, (Statement) newChild);
+            } else {
+                final StatementWhile statementWhile = (StatementWhile) parent;
+                newParent = new StatementWhile(firstToken, statementWhile.expression, (Statement) newChild);
+            }
+            if (spans.remove(parent) != null) {
+                spans.put(newParent, new IToken[]{tokens[start], tokens[end]});
+            }
+            oldChild = parent;
+            newChild = newParent;
+        }
+        ast = (Program) newChild;
+    }
+
+    //forgets the ranges of a replaced node and the nodes below it
+    private void removeSpans(final ASTNode node) {
+        final Deque<ASTNode> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            final ASTNode next = pending.pop();
+            spans.remove(next);
+            if (next instanceof Block block) {
+                block.procedureDecs.forEach(pending::push);
+                pending.push(block.statement);
+            } else if (next instanceof ProcDec procDec) {
+                pending.push(procDec.block);
+            } else if (next instanceof StatementBlock statementBlock) {
+                statementBlock.statements.forEach(pending::push);
+            } else if (next instanceof StatementIf statementIf) {
+                pending.push(statementIf.statement);
+            } else if (next instanceof StatementWhile statementWhile) {
+                pending.push(statementWhile.statement);
+            }
+        }
+    }
+
+    private void parseProgram() throws PLPException {
+        spans.clear();
+        //stays null if the program has an error
+        ast = null;
+        ast = new SpanRecordingParser(new TokenArrayLexer(0)).getProgramAST();
+    }
+
+    //returns the tokens of the current entries from given index on, so that the AST holds the reused token objects
+    private final class TokenArrayLexer implements ILexer {
+        private int index;
+
+        TokenArrayLexer(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public IToken next() throws LexicalException {
+            final IToken token = peek();
+            if (index < tokens.length - 1) {
+                index++;
+            }
+            return token;
+        }
+
+        @Override
+        public IToken peek() throws LexicalException {
+            final IToken token = tokens[index];
+            //the ERROR entry throws the exception of the lexer
+            return token != null ? token : stream.get(index);
+        }
+    }
+
+    //parser that records the range of each statement and block it parses
+    private final class SpanRecordingParser extends Parser {
+        private final TokenArrayLexer lexer;
+        private final List<ASTNode> recorded = new ArrayList<>();
+
+        SpanRecordingParser(final TokenArrayLexer lexer) {
+            super(lexer);
+            this.lexer = lexer;
+        }
+
+        @Override
+        public Block getBlockAST() throws PLPException {
+            final int start = lexer.index;
+            return record(super.getBlockAST(), start);
+        }
+
+        @Override
+        public Statement getStatementAST() throws PLPException {
+            final int start = lexer.index;
+            return record(super.getStatementAST(), start);
+        }
+
+        ProcDec getProcDecAST() throws PLPException {
+            expect(KW_PROCEDURE);
+            final IToken ident = expect(IDENT);
+            expect(SEMI);
+            final Block block = getBlockAST();
+            expect(SEMI);
+            return new ProcDec(ident, ident, block);
+        }
+
+        private IToken expect(final Kind kind) throws PLPException {
+            final IToken token = lexer.next();
+            if (token.getKind() != kind) {
+                throw new SyntaxException("Expected " + kind + " but found " + token.getKind(), token.getSourceLocation());
+            }
+            return token;
+        }
+
+        private <T extends ASTNode> T record(final T node, final int start) {
+            spans.put(node, new IToken[]{tokens[start], tokens[lexer.index]});
+            recorded.add(node);
+            return node;
+        }
+    }
+}
@@ -1,43 +1,66 @@
 package edu.ufl.cise.plpfa22;
 
 import edu.ufl.cise.plpfa22.IToken.Kind;
-import edu.ufl.cise.plpfa22.IToken.SourceLocation;
 
 import java.util.*;
 
 import static edu.ufl.cise.plpfa22.IToken.Kind.*;
 
 public class Lexer implements ILexer {
-    private static final Map<String, Integer> KIND_VS_PRIORITY = new HashMap<>();
-    private static final Token NEW_LINE_TOKEN = TokenFactory.ofKind(null, "", null);
-    private static final Token EXT_NEW_LINE_TOKEN = TokenFactory.ofKind(null, "", null);
-    private static final Token WHITE_SPACE_TOKEN = TokenFactory.ofKind(null, "", null);
-    private static final Token COMMENT_TOKEN = TokenFactory.ofKind(null, "", null);
+    //kinds recognized by the language automaton; when more than one kind is recognized, the one listed first wins (e.g. keywords over identifiers)
+    static final List<String> KINDS_BY_PRIORITY = List.of(EOF.name(), "COMMENT", "NEW_LINE", "WHITE_SPACE", ERROR.name(), DOT.name(), COMMA.name(), SEMI.name(), LPAREN.name(), RPAREN.name(), PLUS.name(), MINUS.name(), TIMES.name(), DIV.name(), MOD.name(), QUESTION.name(), BANG.name(), ASSIGN.name(), EQ.name(), NEQ.name(), LT.name(), LE.name(), GT.name(), GE.name(), KW_CONST.name(), KW_VAR.name(), KW_PROCEDURE.name(), KW_CALL.name(), KW_BEGIN.name(), KW_END.name(), KW_IF.name(), KW_THEN.name(), KW_WHILE.name(), KW_DO.name(), BOOLEAN_LIT.name(), NUM_LIT.name(), IDENT.name(), STRING_LIT.name());
+    static final int COMMENT_RANK = KINDS_BY_PRIORITY.indexOf("COMMENT");
+    static final int NEW_LINE_RANK = KINDS_BY_PRIORITY.indexOf("NEW_LINE");
+    static final int WHITE_SPACE_RANK = KINDS_BY_PRIORITY.indexOf("WHITE_SPACE");
+    //token kind of each rank, null for the ranks of skipped input
+    static final Kind[] KIND_OF_RANK = new Kind[KINDS_BY_PRIORITY.size()];
 
     static {
-        final String[] allKinds = new String[]{EOF.name(), "COMMENT", "NEW_LINE", "WHITE_SPACE", ERROR.name(), DOT.name(), COMMA.name(), SEMI.name(), LPAREN.name(), RPAREN.name(), PLUS.name(), MINUS.name(), TIMES.name(), DIV.name(), MOD.name(), QUESTION.name(), BANG.name(), ASSIGN.name(), EQ.name(), NEQ.name(), LT.name(), LE.name(), GT.name(), GE.name(), KW_CONST.name(), KW_VAR.name(), KW_PROCEDURE.name(), KW_CALL.name(), KW_BEGIN.name(), KW_END.name(), KW_IF.name(), KW_THEN.name(), KW_WHILE.name(), KW_DO.name(), BOOLEAN_LIT.name(), NUM_LIT.name(), IDENT.name(), STRING_LIT.name()};
-        final int num = allKinds.length;
-        for (int i = 0; i < num; i++) {
-            KIND_VS_PRIORITY.put(allKinds[i], i);
+        for (Kind kind : Kind.values()) {
+            final int rank = KINDS_BY_PRIORITY.indexOf(kind.name());
+            if (rank >= 0) {
+                KIND_OF_RANK[rank] = kind;
+            }
         }
     }
 
     private final char[] input;
+    //end of the part of the input to lex
+    private final int end;
     private final FSA fsa;
+    private final IdentifierTable identifiers;
     private int currIndex;
     private int tokenLine;
     private int tokenColumn;
 
+    //token found by the last peek() and the position right after it, valid until next() moves past the token
+    private IToken peekedToken;
     private int peekIndex;
     private int peekLine;
     private int peekColumn;
 
+    //rank and length of the longest match found by the last scan()
+    private int matchRank;
+    private int matchLength;
+
     public Lexer(String input, FSA fsa) {
-        this.input = input == null ? new char[0] : input.toCharArray();
+        this(input == null ? new char[0] : input.toCharArray(), 0, input == null ? 0 : input.length(), fsa);
+    }
+
+    //lexes input[start, end) as if it started at line 1, column 1; tokens are views of the given array
+    Lexer(char[] input, int start, int end, FSA fsa) {
+        this(input, start, end, 1, 1, fsa);
+    }
+
+    //lexes input[start, end) with the first char at given line and column
+    Lexer(char[] input, int start, int end, int line, int column, FSA fsa) {
+        this.input = input;
+        this.end = end;
         this.fsa = fsa;
-        this.currIndex = this.peekIndex = 0;
-        this.tokenLine = this.peekLine = 1;
-        this.tokenColumn = this.peekColumn = 1;
+        this.identifiers = new IdentifierTable();
+        this.currIndex = this.peekIndex = start;
+        this.tokenLine = this.peekLine = line;
+        this.tokenColumn = this.peekColumn = column;
     }
 
     @Override
@@ -46,104 +69,132 @@ public class Lexer implements ILexer {
         currIndex = peekIndex;
         tokenLine = peekLine;
         tokenColumn = peekColumn;
+        peekedToken = null;
         return nextToken;
     }
 
     @Override
     public IToken peek() throws LexicalException {
-        IToken nextToken = null;
+        if (peekedToken == null) {
+            peekedToken = scanToken();
+        }
+        return peekedToken;
+    }
+
+    //finds the token starting at the current position and sets the peek position right after it
+    private IToken scanToken() throws LexicalException {
         peekIndex = currIndex;
         peekLine = tokenLine;
         peekColumn = tokenColumn;
+        return skipToToken() ? createToken() : TokenFactory.ofKind(EOF, "\0", null);
+    }
 
-        while (nextToken == null || nextToken == NEW_LINE_TOKEN || nextToken == EXT_NEW_LINE_TOKEN || nextToken == WHITE_SPACE_TOKEN || nextToken == COMMENT_TOKEN) {
-            nextToken = peek(peekIndex, peekLine, peekColumn);
-            final Kind kind = nextToken.getKind();
-            int len = -1;
-            if (nextToken == NEW_LINE_TOKEN || nextToken == EXT_NEW_LINE_TOKEN) {
-                peekLine++;
-                peekColumn = 1;
-                len = nextToken == NEW_LINE_TOKEN ? 1 : 2;
-            } else if (nextToken == COMMENT_TOKEN) {
+    //lexes the rest of the input into a token stream in one pass; a token that cannot be scanned ends the stream with an ERROR entry
+    TokenStream toTokenStream() {
+        final TokenStream stream = new TokenStream(input, (end - currIndex) / 4 + 16);
+        while (lexInto(stream)) {
+            //one entry is added per call
+        }
+        return stream;
+    }
+
+    //adds the next token to given stream and moves past it; false once the end entry or an ERROR was added instead
+    boolean lexInto(final TokenStream stream) {
+        peekedToken = null;
+        peekIndex = currIndex;
+        peekLine = tokenLine;
+        peekColumn = tokenColumn;
+        try {
+            if (!skipToToken()) {
+                stream.addEnd(peekLine, peekColumn);
+                return false;
+            }
+            final Kind kind = KIND_OF_RANK[matchRank];
+            final int start = peekIndex;
+            final int line = peekLine;
+            final int column = peekColumn;
+            if (kind == STRING_LIT || kind == NUM_LIT) {
+                //needs the checks and line counting done for a token
+                createToken();
+            } else {
+                peekIndex += matchLength;
+                peekColumn += matchLength;
+            }
+            stream.add(kind, start, peekIndex - start, line, column);
+            return true;
+        } catch (LexicalException ex) {
+            stream.addError(ex.getMessage(), peekIndex, peekLine, peekColumn);
+            return false;
+        } finally {
+            currIndex = peekIndex;
+            tokenLine = peekLine;
+            tokenColumn = peekColumn;
+        }
+    }
+
+    //moves the peek position past line breaks, comments and white space; true if a token was matched there, false at the end of the input
+    private boolean skipToToken() throws LexicalException {
+        while (peekIndex < end) {
+            scan(peekIndex);
+            if (matchRank == NEW_LINE_RANK || matchRank == COMMENT_RANK) {
+                //a comment includes the line break ending it
                 peekLine++;
                 peekColumn = 1;
-                len = nextToken.getText().length;
-            } else if (nextToken == WHITE_SPACE_TOKEN) {
+            } else if (matchRank == WHITE_SPACE_RANK) {
                 peekColumn++;
-                len = 1;
-            } else if (kind == STRING_LIT) {
-                //see testStringLineNum()
-                final StringToken stringToken = (StringToken) nextToken;
-                final int numNewLines = stringToken.getNumNewLines();
-                peekLine += numNewLines;
-                if (numNewLines > 0) {
-                    peekColumn = 1;
-                }
-                peekColumn += stringToken.getLastLineLen();
-                len = nextToken.getText().length;
             } else {
-                len = nextToken.getText().length;
-                peekColumn += len;
+                return true;
             }
-            peekIndex += len;
+            peekIndex += matchLength;
         }
-        return nextToken;
+        return false;
     }
 
-    public IToken peek(int index, final int line, final int column) throws LexicalException {
-        try {
-            final int length = input.length;
-            if (index >= length) {
-                return TokenFactory.ofKind(EOF, "\0", null);
+    //builds the token matched at peekIndex and moves the peek position past it
+    private IToken createToken() throws LexicalException {
+        final Kind kind = KIND_OF_RANK[matchRank];
+        final Token token = TokenFactory.ofKind(kind, input, peekIndex, matchLength, peekLine, peekColumn, identifiers);
+        if (kind == STRING_LIT) {
+            //see testStringLineNum()
+            final StringToken stringToken = (StringToken) token;
+            final int numNewLines = stringToken.getNumNewLines();
+            peekLine += numNewLines;
+            if (numNewLines > 0) {
+                peekColumn = 1;
             }
-            final StringBuilder sb = new StringBuilder();
-
-            Token possibleToken = null;
-
-            //consume as many characters as you can
-            while (index < length) {
-                final char ch = input[index++];
-                sb.append(ch);
-                final List<String> longerTokenKinds = new ArrayList<>(fsa.advance(ch));
-                //FSA did not advance to new states
-                if (!fsa.advanced()) {
-                    if (possibleToken == null) {
-                        throw new LexicalException();
-                    }
-                    //return longest token recognized yet
-                    int len = -1;
-                    if (possibleToken.getKind() == NUM_LIT) {
-                        possibleToken.getIntValue();
-                    }
-                    return possibleToken;
-                } else if (!longerTokenKinds.isEmpty()) {
-                    //longer tokens recognized; spit out tokens based on priority (e.g. keywords are higher priority than identifiers)
-                    final String kind = getHighestPriority(longerTokenKinds);
-                    if ("NEW_LINE".equals(kind)) {
-                        possibleToken = sb.length() == 1 ? NEW_LINE_TOKEN : EXT_NEW_LINE_TOKEN;
-                    } else if ("WHITE_SPACE".equals(kind)) {
-                        possibleToken = WHITE_SPACE_TOKEN;
-                    } else if ("COMMENT".equals(kind)) {
-                        possibleToken = COMMENT_TOKEN;
-                        possibleToken.setText(sb.toString().toCharArray());
-                    } else {
-                        possibleToken = TokenFactory.ofKind(Kind.valueOf(kind), sb.toString(), new SourceLocation(line, column));
-                    }
+            peekColumn += stringToken.getLastLineLen();
+        } else {
+            if (kind == NUM_LIT) {
+                try {
+                    token.getIntValue();
+                } catch (NumberFormatException ex) {
+                    throw new LexicalException("Invalid integer");
                 }
             }
-            if (possibleToken == null) {
-                throw new LexicalException();
-            }
-            return possibleToken;
-        } catch (NumberFormatException ex) {
-            throw new LexicalException("Invalid integer");
-        } finally {
-            fsa.reset();
+            peekColumn += matchLength;
         }
+        peekIndex += matchLength;
+        return token;
     }
 
-    private static String getHighestPriority(final List<String> allKinds) {
-        allKinds.sort(Comparator.comparingInt(KIND_VS_PRIORITY::get));
-        return allKinds.get(0);
+    //runs the automaton from given index as long as it can, remembering the longest match seen on the way
+    private void scan(final int index) throws LexicalException {
+        int state = FSA.START;
+        matchRank = -1;
+        matchLength = 0;
+        for (int i = index; i < end; i++) {
+            state = fsa.next(state, input[i]);
+            if (state == FSA.DEAD) {
+                break;
+            }
+            final int rank = fsa.getAcceptingRank(state);
+            if (rank >= 0) {
+                matchRank = rank;
+                matchLength = i - index + 1;
+            }
+        }
+        if (matchRank < 0) {
+            throw new LexicalException();
+        }
     }
 }
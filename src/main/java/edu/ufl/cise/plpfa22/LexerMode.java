@@ -0,0 +1,12 @@
+package edu.ufl.cise.plpfa22;
+
+public enum LexerMode {
+    //table-driven lexer over the automaton built from the token definitions; the reference implementation
+    AUTOMATON,
+    //hand-written scanner specialized for the PLP token set
+    FAST,
+    //whole input lexed up front by the automaton into a TokenStream
+    TOKEN_STREAM,
+    //like TOKEN_STREAM, with chunks of a large input lexed in parallel on the common ForkJoinPool
+    PARALLEL
+}
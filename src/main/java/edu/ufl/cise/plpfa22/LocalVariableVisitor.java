@@ -0,0 +1,142 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.*;
+
+/**
+ * Runs after type inference, and after the ReachabilityVisitor if it is used. Marks each variable that only the
+ * statement of its own block uses as local, so that the code generators keep it in a JVM local of the method of the
+ * block instead of a field. A variable that a procedure nested in its block reads or writes must stay a field, as the
+ * code of the procedure reaches it through the object of the block.
+ * <p>
+ * The uses in unreachable procedures are not counted, as no code is generated for them.
+ */
+public class LocalVariableVisitor implements ASTVisitor {
+
+    //nest of the declarations of the block being visited
+    private int level;
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws PLPException {
+        level = 0;
+        return program.block.visit(this, arg);
+    }
+
+    //the variables of the block are local until a nested procedure is found to use them
+    @Override
+    public Object visitBlock(Block block, Object arg) throws PLPException {
+        for (final VarDec dec : block.varDecs) {
+            dec.setLocal(true);
+        }
+        for (final ProcDec dec : block.procedureDecs) {
+            if (!dec.isUnreachable()) {
+                dec.visit(this, arg);
+            }
+        }
+        return block.statement.visit(this, arg);
+    }
+
+    private void use(final Declaration dec) {
+        if (dec instanceof VarDec varDec && varDec.getNest() != level) {
+            varDec.setLocal(false);
+        }
+    }
+
+    @Override
+    public Object visitStatementAssign(StatementAssign statementAssign, Object arg) throws PLPException {
+        use(statementAssign.ident.getDec());
+        return statementAssign.expression.visit(this, arg);
+    }
+
+    @Override
+    public Object visitVarDec(VarDec varDec, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementCall(StatementCall statementCall, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementInput(StatementInput statementInput, Object arg) throws PLPException {
+        use(statementInput.ident.getDec());
+        return null;
+    }
+
+    @Override
+    public Object visitStatementOutput(StatementOutput statementOutput, Object arg) throws PLPException {
+        return statementOutput.expression.visit(this, arg);
+    }
+
+    @Override
+    public Object visitStatementBlock(StatementBlock statementBlock, Object arg) throws PLPException {
+        for (final Statement statement : statementBlock.statements) {
+            statement.visit(this, arg);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitStatementIf(StatementIf statementIf, Object arg) throws PLPException {
+        statementIf.expression.visit(this, arg);
+        return statementIf.statement.visit(this, arg);
+    }
+
+    @Override
+    public Object visitStatementWhile(StatementWhile statementWhile, Object arg) throws PLPException {
+        statementWhile.expression.visit(this, arg);
+        return statementWhile.statement.visit(this, arg);
+    }
+
+    @Override
+    public Object visitExpressionBinary(ExpressionBinary expressionBinary, Object arg) throws PLPException {
+        expressionBinary.e0.visit(this, arg);
+        return expressionBinary.e1.visit(this, arg);
+    }
+
+    @Override
+    public Object visitExpressionIdent(ExpressionIdent expressionIdent, Object arg) throws PLPException {
+        use(expressionIdent.getDec());
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionNumLit(ExpressionNumLit expressionNumLit, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionStringLit(ExpressionStringLit expressionStringLit, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionBooleanLit(ExpressionBooleanLit expressionBooleanLit, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitProcedure(ProcDec procDec, Object arg) throws PLPException {
+        level++;
+        try {
+            return procDec.block.visit(this, arg);
+        } finally {
+            level--;
+        }
+    }
+
+    @Override
+    public Object visitConstDec(ConstDec constDec, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementEmpty(StatementEmpty statementEmpty, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitIdent(Ident ident, Object arg) throws PLPException {
+        return null;
+    }
+}
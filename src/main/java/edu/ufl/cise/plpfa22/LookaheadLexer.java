@@ -0,0 +1,63 @@
+package edu.ufl.cise.plpfa22;
+
+/**
+ * Wraps any ILexer with a ring buffer of already scanned tokens so that callers can look more than one token ahead.
+ * Every token is scanned by the wrapped lexer exactly once.
+ */
+public class LookaheadLexer implements ILexer {
+    private final ILexer lexer;
+    //tokens scanned but not yet returned by next(); buffer[head] is the next token
+    private IToken[] buffer;
+    private int head;
+    private int size;
+
+    public LookaheadLexer(ILexer lexer) {
+        this(lexer, 4);
+    }
+
+    public LookaheadLexer(ILexer lexer, int initialCapacity) {
+        this.lexer = lexer;
+        this.buffer = new IToken[Integer.highestOneBit(Math.max(initialCapacity, 1) * 2 - 1)];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    @Override
+    public IToken next() throws LexicalException {
+        final IToken token = peek(0);
+        buffer[head] = null;
+        head = (head + 1) & (buffer.length - 1);
+        size--;
+        return token;
+    }
+
+    @Override
+    public IToken peek() throws LexicalException {
+        return peek(0);
+    }
+
+    //returns the token k positions after the next one, so that peek(0) is the same as peek()
+    public IToken peek(final int k) throws LexicalException {
+        if (k < 0) {
+            throw new IllegalArgumentException("Negative lookahead " + k);
+        }
+        while (size <= k) {
+            if (size == buffer.length) {
+                grow();
+            }
+            //the wrapped lexer's next() does not move past a token it fails to scan, so a failed fill can be retried
+            buffer[(head + size) & (buffer.length - 1)] = lexer.next();
+            size++;
+        }
+        return buffer[(head + k) & (buffer.length - 1)];
+    }
+
+    private void grow() {
+        final IToken[] grown = new IToken[buffer.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = buffer[(head + i) & (buffer.length - 1)];
+        }
+        buffer = grown;
+        head = 0;
+    }
+}
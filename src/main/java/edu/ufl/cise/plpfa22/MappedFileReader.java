@@ -0,0 +1,109 @@
+package edu.ufl.cise.plpfa22;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 file by mapping it into memory one window at a time and decoding the bytes straight into the caller's
+ * buffer. Malformed input is reported as an IOException.
+ */
+class MappedFileReader extends Reader {
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final CharsetDecoder decoder;
+    //file position of the current window, null until the first read
+    private long windowPosition;
+    private MappedByteBuffer window;
+    private boolean flushed;
+    //a surrogate pair decoded for a read of one char, whose second char is returned by the next read
+    private final CharBuffer pending = CharBuffer.allocate(2).flip();
+
+    MappedFileReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedFileReader(Path path, int windowSize) throws IOException {
+        //a window must hold the longest encoding of a char for decoding to make progress
+        if (windowSize < 4) {
+            throw new IllegalArgumentException("Window too small " + windowSize);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.windowPosition = 0;
+        this.flushed = false;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pending.hasRemaining()) {
+            cbuf[off] = pending.get();
+            return 1;
+        }
+        if (flushed) {
+            return -1;
+        }
+        if (window == null) {
+            map(0);
+        }
+        final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.position() == off) {
+            final boolean last = windowPosition + window.limit() >= size;
+            //a surrogate pair does not fit in a single char, so a read of one char decodes into the pending buffer
+            final CharBuffer target = out.remaining() == 1 ? pending.clear() : out;
+            final CoderResult result = decoder.decode(window, target, last);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (target == pending) {
+                pending.flip();
+                if (pending.hasRemaining()) {
+                    out.put(pending.get());
+                    break;
+                }
+            }
+            if (result.isOverflow()) {
+                break;
+            }
+            if (last) {
+                if (!flushed) {
+                    decoder.flush(out);
+                    flushed = true;
+                }
+                break;
+            }
+            //bytes of a char split by the end of the window are decoded from the start of the next one
+            map(windowPosition + window.position());
+        }
+        final int read = out.position() - off;
+        return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(final long position) throws IOException {
+        windowPosition = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+    }
+}
@@ -0,0 +1,221 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.ast.*;
+import edu.ufl.cise.plpfa22.ast.Types.Type;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static edu.ufl.cise.plpfa22.ast.Types.Type.*;
+
+/**
+ * Generates a single class for the program, with each procedure compiled to a private method of it, so that a CALL is
+ * a plain invocation instead of the allocation of a procedure object and the copy of its this$ chain.
+ * <p>
+ * The variables and constants of all blocks are lifted to fields of the program class, named after the path of the
+ * procedure they are declared in, e.g. -p-q-x for x in procedure q in procedure p, and the procedures to methods named
+ * after their own path, e.g. -p-q. An identifier cannot contain the separator, so two declarations never get the same
+ * name, and a procedure method never has the name of run. As there are no procedure values, the
+ * activation of p that a procedure nested in p refers to is always the latest one, so the fields of p hold its
+ * variables if each call of p saves their values in JVM locals, resets them for the new activation and restores them
+ * when it returns.
+ */
+public class MethodCodeGenVisitor extends CodeGenVisitor {
+
+    //separates the names in a path; legal in a JVM name, but not in an identifier
+    static final String SEPARATOR = "-";
+
+    //names of the fields and methods the declarations are compiled to
+    private final Map<Declaration, String> names = new IdentityHashMap<>();
+
+    public MethodCodeGenVisitor(String className, String packageName, String sourceFileName) {
+        super(className, packageName, sourceFileName);
+    }
+
+    static String descriptor(Type type) {
+        return type == NUMBER ? "I" : (type == BOOLEAN ? "Z" : "Ljava/lang/String;");
+    }
+
+    //the arguments the visit methods pass down are lists of the objects they need
+    @SuppressWarnings("unchecked")
+    private static List<Object> args(Object arg) {
+        return (List<Object>) arg;
+    }
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws PLPException {
+        final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        classWriter.visit(V16, ACC_PUBLIC | ACC_SUPER, fullyQualifiedClassName, null, "java/lang/Object", new String[]{"java/lang/Runnable"});
+        final MethodVisitor constructor = classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        generateMain(classWriter);
+
+        program.block.visit(this, Arrays.asList(classWriter, null));
+        classWriter.visitEnd();
+        return List.of(new GenClass(fullyQualifiedClassName, classWriter.toByteArray()));
+    }
+
+    //arg is the class writer and the path of the procedure of the block, or null for the main block
+    @Override
+    public Object visitBlock(Block block, Object arg) throws PLPException {
+        final List<Object> args = args(arg);
+        final ClassWriter classWriter = (ClassWriter) args.get(0);
+        final String path = (String) args.get(1);
+        final String prefix = path == null ? "" : path + SEPARATOR;
+
+        for (final ConstDec dec : block.constDecs) {
+            names.put(dec, prefix + dec.ident.getStringValue());
+            dec.visit(this, classWriter);
+        }
+        for (final VarDec dec : block.varDecs) {
+            names.put(dec, prefix + dec.ident.getStringValue());
+            dec.visit(this, classWriter);
+        }
+        //all procedures of the block are named first, as they can call each other
+        for (final ProcDec dec : block.procedureDecs) {
+            names.put(dec, (path == null ? SEPARATOR : prefix) + dec.ident.getStringValue());
+        }
+        for (final ProcDec dec : block.procedureDecs) {
+            if (dec.isUnreachable()) continue;
+            dec.visit(this, classWriter);
+        }
+
+        final MethodVisitor mv = classWriter.visitMethod(path == null ? ACC_PUBLIC : ACC_PRIVATE, path == null ? "run" : path, "()V", null, null);
+        mv.visitCode();
+        final Label[] flushLabels = path == null ? beginFlush(mv) : null;
+        int local = FIRST_FREE_LOCAL;
+        if (path != null) {
+            for (final VarDec dec : block.varDecs) {
+                final Type type = dec.getType();
+                if (type == null || dec.isLocal()) continue;
+                //save the variable of the calling activation and reset it for this one
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, fullyQualifiedClassName, names.get(dec), descriptor(type));
+                mv.visitVarInsn(type == STRING ? ASTORE : ISTORE, local++);
+                mv.visitVarInsn(ALOAD, 0);
+                if (type == STRING) {
+                    mv.visitInsn(ACONST_NULL);
+                } else {
+                    mv.visitInsn(ICONST_0);
+                }
+                mv.visitFieldInsn(PUTFIELD, fullyQualifiedClassName, names.get(dec), descriptor(type));
+            }
+        }
+        //a variable in a JVM local belongs to the activation, so it needs no saving
+        allocateLocals(mv, block.varDecs, local);
+        block.statement.visit(this, Arrays.asList(mv, fullyQualifiedClassName));
+        if (path != null) {
+            local = FIRST_FREE_LOCAL;
+            for (final VarDec dec : block.varDecs) {
+                final Type type = dec.getType();
+                if (type == null || dec.isLocal()) continue;
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(type == STRING ? ALOAD : ILOAD, local++);
+                mv.visitFieldInsn(PUTFIELD, fullyQualifiedClassName, names.get(dec), descriptor(type));
+            }
+            mv.visitInsn(RETURN);
+        } else {
+            endFlush(mv, flushLabels);
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        return null;
+    }
+
+    //constants are the same in every activation, so they are static fields initialized by the JVM
+    @Override
+    public Object visitConstDec(ConstDec constDec, Object arg) throws PLPException {
+        final ClassWriter classWriter = (ClassWriter) arg;
+        classWriter.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, names.get(constDec), descriptor(constDec.getType()), null, constDec.val).visitEnd();
+        return null;
+    }
+
+    @Override
+    public Object visitVarDec(VarDec varDec, Object arg) throws PLPException {
+        final ClassWriter classWriter = (ClassWriter) arg;
+        //a variable that is never used has no type and no field
+        if (varDec.getType() != null && !varDec.isLocal()) {
+            classWriter.visitField(ACC_PRIVATE, names.get(varDec), descriptor(varDec.getType()), null, null).visitEnd();
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitProcedure(ProcDec procDec, Object arg) throws PLPException {
+        return procDec.block.visit(this, Arrays.asList(arg, names.get(procDec)));
+    }
+
+    @Override
+    public Object visitStatementAssign(StatementAssign statementAssign, Object arg) throws PLPException {
+        final List<Object> args = args(arg);
+        final MethodVisitor mv = (MethodVisitor) args.get(0);
+        final Declaration dec = statementAssign.ident.getDec();
+        if (localSlots.containsKey(dec)) {
+            statementAssign.expression.visit(this, arg);
+            storeLocal(mv, dec);
+            return null;
+        }
+        mv.visitVarInsn(ALOAD, 0);
+        statementAssign.expression.visit(this, arg);
+        mv.visitFieldInsn(PUTFIELD, fullyQualifiedClassName, names.get(dec), descriptor(dec.getType()));
+        return null;
+    }
+
+    @Override
+    public Object visitStatementCall(StatementCall statementCall, Object arg) throws PLPException {
+        final List<Object> args = args(arg);
+        final MethodVisitor mv = (MethodVisitor) args.get(0);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, fullyQualifiedClassName, names.get(statementCall.ident.getDec()), "()V", false);
+        return null;
+    }
+
+    @Override
+    public Object visitStatementInput(StatementInput statementInput, Object arg) throws PLPException {
+        final List<Object> args = args(arg);
+        final MethodVisitor mv = (MethodVisitor) args.get(0);
+        final Declaration dec = statementInput.ident.getDec();
+        if (localSlots.containsKey(dec)) {
+            generateRead(mv, dec.getType());
+            storeLocal(mv, dec);
+            return null;
+        }
+        mv.visitVarInsn(ALOAD, 0);
+        generateRead(mv, dec.getType());
+        mv.visitFieldInsn(PUTFIELD, fullyQualifiedClassName, names.get(dec), descriptor(dec.getType()));
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionIdent(ExpressionIdent expressionIdent, Object arg) throws PLPException {
+        final List<Object> args = args(arg);
+        final MethodVisitor mv = (MethodVisitor) args.get(0);
+        if (expressionIdent.getValue() != null) {
+            loadConstant(mv, expressionIdent.getValue());
+            return null;
+        }
+        final Declaration dec = expressionIdent.getDec();
+        if (loadLocal(mv, dec)) {
+            return null;
+        }
+        if (dec instanceof ConstDec) {
+            mv.visitFieldInsn(GETSTATIC, fullyQualifiedClassName, names.get(dec), descriptor(dec.getType()));
+        } else {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, fullyQualifiedClassName, names.get(dec), descriptor(dec.getType()));
+        }
+        return null;
+    }
+}
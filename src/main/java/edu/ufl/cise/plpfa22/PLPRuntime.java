@@ -0,0 +1,317 @@
+package edu.ufl.cise.plpfa22;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Support methods the generated code calls with INVOKESTATIC. The ? statements of a program share one reader of
+ * System.in, which reads the input in blocks of BUFFER_SIZE bytes, so that a read is not the creation of a Scanner and
+ * the input one statement buffered is still there for the next. The reader is created by the first read, and again when
+ * System.in was replaced.
+ * <p>
+ * A number is read as by Scanner.nextInt, without the locale specific forms, and a string or a boolean as a line, as
+ * by Scanner.nextLine. The spaces after a number are skipped, and the end of its line if it follows them, so that a line
+ * can be read after a number on a line of its own.
+ * <p>
+ * The ! statements append their line to a buffer of OUTPUT_BUFFER_SIZE chars, formatted as by PrintStream.println,
+ * which is written to System.out when it is full, when the run method of the program returns or fails, be it called by
+ * main or as a Runnable, and as the FlushPolicy says: before each read with INPUT, the default, or once the flush size
+ * of chars was buffered since the output was last flushed with EVERY_N. The policy and the flush size are read from the
+ * system properties plp.output.flush and plp.output.flushSize, or set with setFlushPolicy and setFlushSize; a flush
+ * size of 0 writes each line. The buffer does not depend on the flush size, so a large one only counts the chars. A
+ * program runs in a single thread, so the buffers are not synchronized.
+ * <p>
+ * The string comparisons are those of the language: a < b if a is a prefix of b and not equal to it, and a > b if b is
+ * a suffix of a and not equal to it. Two strings of the same length are equal if one is a prefix of the other, so the
+ * strict comparisons compare the lengths instead of calling equals.
+ */
+public final class PLPRuntime {
+
+    static final int BUFFER_SIZE = 1 << 16;
+    static final int OUTPUT_BUFFER_SIZE = 1 << 13;
+    static final int DEFAULT_FLUSH_SIZE = 1 << 13;
+    static final FlushPolicy DEFAULT_FLUSH_POLICY = FlushPolicy.INPUT;
+
+    private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+    private static final char[] TRUE = "true".toCharArray();
+    private static final char[] FALSE = "false".toCharArray();
+    private static final char[] NULL = "null".toCharArray();
+    //chars of the smallest int, the longest one
+    private static final int NUMBER_SIZE = 11;
+
+    private static Input input;
+    private static FlushPolicy flushPolicy = getFlushPolicy(System.getProperty("plp.output.flush"));
+    private static int flushSize = Math.max(Integer.getInteger("plp.output.flushSize", DEFAULT_FLUSH_SIZE), 0);
+    private static final char[] output = new char[OUTPUT_BUFFER_SIZE];
+    private static int outputLength;
+    //chars written to System.out since it was last flushed
+    private static long written;
+
+    private PLPRuntime() {
+    }
+
+    public static int readNumber() {
+        beforeInput();
+        return input().readNumber();
+    }
+
+    public static String readString() {
+        beforeInput();
+        return input().readLine();
+    }
+
+    public static boolean readBoolean() {
+        beforeInput();
+        return input().readLine().equals("TRUE");
+    }
+
+    public static void println(int value) {
+        reserve(NUMBER_SIZE);
+        //the digits are written from the end, with a negative value, so that the smallest int needs no special case
+        final boolean negative = value < 0;
+        int n = negative ? value : -value;
+        final int end = outputLength + NUMBER_SIZE;
+        int position = end;
+        do {
+            output[--position] = (char) ('0' - n % 10);
+            n /= 10;
+        } while (n != 0);
+        if (negative) {
+            output[--position] = '-';
+        }
+        final int digits = end - position;
+        System.arraycopy(output, position, output, outputLength, digits);
+        outputLength += digits;
+        endLine();
+    }
+
+    public static void println(boolean value) {
+        append(value ? TRUE : FALSE);
+        endLine();
+    }
+
+    public static void println(String value) {
+        if (value == null) {
+            append(NULL);
+        } else {
+            //a string longer than the free part of the buffer is written in chunks
+            final int length = value.length();
+            int start = 0;
+            while (start < length) {
+                reserve(1);
+                final int end = Math.min(length, start + output.length - outputLength);
+                value.getChars(start, end, output, outputLength);
+                outputLength += end - start;
+                start = end;
+            }
+        }
+        endLine();
+    }
+
+    public static boolean stringLT(String a, String b) {
+        return a.length() < b.length() && b.startsWith(a);
+    }
+
+    public static boolean stringLE(String a, String b) {
+        return b.startsWith(a);
+    }
+
+    public static boolean stringGT(String a, String b) {
+        return b.length() < a.length() && a.endsWith(b);
+    }
+
+    public static boolean stringGE(String a, String b) {
+        return a.endsWith(b);
+    }
+
+    //sets the number of buffered chars after which EVERY_N flushes the output
+    public static void setFlushSize(int chars) {
+        if (chars < 0) {
+            throw new IllegalArgumentException("flush size " + chars);
+        }
+        flush();
+        flushSize = chars;
+    }
+
+    public static void setFlushPolicy(FlushPolicy policy) {
+        flush();
+        flushPolicy = Objects.requireNonNull(policy);
+    }
+
+    //writes the buffered output to System.out and flushes it
+    public static void flush() {
+        write();
+        System.out.flush();
+        written = 0;
+    }
+
+    //the policy named by the property, or the default one if it names none
+    private static FlushPolicy getFlushPolicy(String name) {
+        for (final FlushPolicy policy : FlushPolicy.values()) {
+            if (policy.name().equals(name)) {
+                return policy;
+            }
+        }
+        return DEFAULT_FLUSH_POLICY;
+    }
+
+    private static void beforeInput() {
+        if (flushPolicy != FlushPolicy.EXIT) {
+            flush();
+        }
+    }
+
+    private static void write() {
+        if (outputLength > 0) {
+            System.out.append(CharBuffer.wrap(output, 0, outputLength));
+            written += outputLength;
+            outputLength = 0;
+        }
+    }
+
+    private static void append(char[] chars) {
+        reserve(chars.length);
+        System.arraycopy(chars, 0, output, outputLength, chars.length);
+        outputLength += chars.length;
+    }
+
+    //makes room for given number of chars, at most the size of the buffer
+    private static void reserve(int length) {
+        if (outputLength + length > output.length) {
+            write();
+        }
+    }
+
+    private static void endLine() {
+        append(LINE_SEPARATOR);
+        if (flushPolicy == FlushPolicy.EVERY_N && written + outputLength >= flushSize) {
+            flush();
+        }
+    }
+
+    private static Input input() {
+        final InputStream in = System.in;
+        if (input == null || input.in != in) {
+            input = new Input(in);
+        }
+        return input;
+    }
+
+    private static final class Input {
+        final InputStream in;
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int position;
+        int limit;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        //next byte without consuming it, or -1 at the end of the input
+        int peek() {
+            if (position == limit) {
+                try {
+                    limit = Math.max(in.read(buffer, 0, buffer.length), 0);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                position = 0;
+                if (limit == 0) {
+                    return -1;
+                }
+            }
+            return buffer[position] & 0xff;
+        }
+
+        int readNumber() {
+            int c = peek();
+            while (c != -1 && Character.isWhitespace(c)) {
+                position++;
+                c = peek();
+            }
+            if (c == -1) {
+                throw new NoSuchElementException();
+            }
+            final boolean negative = c == '-';
+            if (c == '-' || c == '+') {
+                position++;
+                c = peek();
+            }
+            //the magnitude is accumulated in a long, so that the smallest int can be read
+            final long max = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+            long value = 0;
+            int digits = 0;
+            while (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > max) {
+                    throw new InputMismatchException("number out of range");
+                }
+                digits++;
+                position++;
+                c = peek();
+            }
+            if (digits == 0 || (c != -1 && !Character.isWhitespace(c))) {
+                throw new InputMismatchException();
+            }
+            while (c == ' ' || c == '\t') {
+                position++;
+                c = peek();
+            }
+            if (c == '\r') {
+                position++;
+                c = peek();
+            }
+            if (c == '\n') {
+                position++;
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        String readLine() {
+            if (peek() == -1) {
+                throw new NoSuchElementException("No line found");
+            }
+            byte[] line = null;
+            int length = 0;
+            while (peek() != -1) {
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                final boolean complete = end < limit;
+                //the common case of a line within the buffer is decoded without a copy
+                if (line == null && complete) {
+                    final String s = decode(buffer, position, end);
+                    position = end + 1;
+                    return s;
+                }
+                if (line == null) {
+                    line = new byte[Math.max(2 * (end - position), 80)];
+                } else if (length + end - position > line.length) {
+                    line = Arrays.copyOf(line, Math.max(2 * line.length, length + end - position));
+                }
+                System.arraycopy(buffer, position, line, length, end - position);
+                length += end - position;
+                position = complete ? end + 1 : end;
+                if (complete) {
+                    break;
+                }
+            }
+            return decode(line, 0, length);
+        }
+
+        private static String decode(byte[] bytes, int start, int end) {
+            if (end > start && bytes[end - 1] == '\r') {
+                end--;
+            }
+            return new String(bytes, start, end - start, Charset.defaultCharset());
+        }
+    }
+}
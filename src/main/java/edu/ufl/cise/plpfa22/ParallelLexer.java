@@ -0,0 +1,146 @@
+package edu.ufl.cise.plpfa22;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lexes a large input into a TokenStream by splitting it into chunks that are lexed at the same time on a
+ * ForkJoinPool. A quick pre-scan finds the line breaks that are outside string literals and comments; the sequential
+ * lexer starts a token at column 1 right after each of them, so a chunk starting there is lexed exactly as the
+ * sequential lexer would. Every chunk is lexed as if it started at line 1 and its lines are moved down when the chunks
+ * are joined, so the result is the same token sequence as {@link Lexer#toTokenStream()}.
+ */
+public class ParallelLexer {
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final FSA fsa;
+    private final ForkJoinPool pool;
+    //minimum number of chars in a chunk; a chunk only ends at a line break
+    private final int chunkSize;
+
+    public ParallelLexer(FSA fsa, ForkJoinPool pool) {
+        this(fsa, pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    ParallelLexer(FSA fsa, ForkJoinPool pool, int chunkSize) {
+        this.fsa = fsa;
+        this.pool = pool;
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    public TokenStream lex(final String input) {
+        final char[] source = input.toCharArray();
+        final List<Integer> boundaries = findChunkBoundaries(source);
+        if (boundaries.size() == 2) {
+            return new Lexer(source, 0, source.length, fsa).toTokenStream();
+        }
+
+        final List<ForkJoinTask<TokenStream>> chunks = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.size(); i++) {
+            final int start = boundaries.get(i);
+            final int end = boundaries.get(i + 1);
+            chunks.add(pool.submit(() -> new Lexer(source, start, end, fsa).toTokenStream()));
+        }
+
+        final TokenStream stream = new TokenStream(source, source.length / 4 + 16);
+        int lineOffset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            final TokenStream chunk = chunks.get(i).join();
+            stream.append(chunk, lineOffset);
+            final int end = chunk.size() - 1;
+            if (chunk.getKind(end) == IToken.Kind.ERROR) {
+                //the sequential lexer would stop here, so the later chunks are not needed
+                for (int j = i + 1; j < chunks.size(); j++) {
+                    chunks.get(j).cancel(false);
+                }
+                return stream;
+            }
+            if (i == chunks.size() - 1) {
+                stream.addEnd(chunk.getLine(end) + lineOffset, chunk.getColumn(end));
+            }
+            lineOffset += chunk.getLine(end) - 1;
+        }
+        return stream;
+    }
+
+    //start index of each chunk followed by the length of the source
+    private List<Integer> findChunkBoundaries(final char[] source) {
+        final List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+        final int length = source.length;
+        int chunkStart = 0;
+        int i = 0;
+        while (i < length) {
+            final char ch = source[i];
+            if (ch == '"') {
+                i = skipString(source, i);
+                if (i < 0) {
+                    //the lexer fails at this string, so nothing after it is ever lexed
+                    break;
+                }
+            } else if (ch == '/' && i + 1 < length && source[i + 1] == '/') {
+                i = skipComment(source, i);
+            } else {
+                i++;
+            }
+            if (source[i - 1] == '\n' && i - chunkStart >= chunkSize && i < length) {
+                boundaries.add(i);
+                chunkStart = i;
+            }
+        }
+        boundaries.add(length);
+        return boundaries;
+    }
+
+    //end of the string literal starting at given index, or -1 if it is not a valid one
+    private static int skipString(final char[] source, final int start) {
+        int i = start + 1;
+        while (i < source.length) {
+            final char ch = source[i];
+            if (ch == '"') {
+                return i + 1;
+            } else if (ch == '\\') {
+                if (i + 1 == source.length || !isEscapedSymbol(source[i + 1])) {
+                    return -1;
+                }
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    //end of the comment starting at given index; a comment ending at a lone '\r' is not matched, so its '/' is a DIV
+    private static int skipComment(final char[] source, final int start) {
+        //a comment may also end at a '\0', but it goes on as long as a line break can still end it
+        int lastNull = -1;
+        int i = start + 2;
+        while (i < source.length) {
+            final char ch = source[i];
+            if (ch == '\n') {
+                return i + 1;
+            } else if (ch == '\r') {
+                if (i + 1 < source.length && source[i + 1] == '\n') {
+                    return i + 2;
+                }
+                break;
+            } else if (ch == '\0') {
+                lastNull = i;
+            }
+            i++;
+        }
+        return lastNull < 0 ? start + 1 : lastNull + 1;
+    }
+
+    private static boolean isEscapedSymbol(final char ch) {
+        for (char escaped : Token.ESCAPED_SYMBOLS) {
+            if (escaped == ch) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
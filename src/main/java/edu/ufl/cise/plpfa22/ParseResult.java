@@ -0,0 +1,16 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+
+import java.util.List;
+
+/**
+ * The AST of a program parsed with error recovery and the syntax errors found in it, in source order. If there are
+ * errors, the parts of the AST they were found in are missing or replaced by empty statements.
+ */
+public record ParseResult(ASTNode ast, List<SyntaxException> errors) {
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
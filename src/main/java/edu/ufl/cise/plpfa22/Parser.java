@@ -7,10 +7,8 @@ import static edu.ufl.cise.plpfa22.IToken.Kind.*;
 import edu.ufl.cise.plpfa22.ast.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static edu.ufl.cise.plpfa22.IToken.Kind.NUM_LIT;
-import static java.util.Collections.singleton;
 
 public class Parser implements IParser {
     private final ILexer lexer;
@@ -27,17 +25,56 @@ public class Parser implements IParser {
         CONST_VAL
     }
 
-    private static final Map<NON_TERMINALS, Set<Kind>> FIRST_SETS = new HashMap<>();
-    private static final Map<NON_TERMINALS, Set<Kind>> FOLLOW_SETS = new HashMap<>();
+    //precedence of each binary operator kind, indexed by ordinal, -1 for kinds that are not binary operators
+    static final int RELATIONAL_PRECEDENCE = 0;
+    static final int ADDITIVE_PRECEDENCE = 1;
+    static final int MULTIPLICATIVE_PRECEDENCE = 2;
+    static final int[] BINARY_PRECEDENCE = new int[Kind.values().length];
 
-    public Parser(ILexer lexer) {
-        this.lexer = lexer;
+    static {
+        Arrays.fill(BINARY_PRECEDENCE, -1);
+        for (Kind kind : List.of(LT, GT, EQ, NEQ, LE, GE)) {
+            BINARY_PRECEDENCE[kind.ordinal()] = RELATIONAL_PRECEDENCE;
+        }
+        for (Kind kind : List.of(PLUS, MINUS)) {
+            BINARY_PRECEDENCE[kind.ordinal()] = ADDITIVE_PRECEDENCE;
+        }
+        for (Kind kind : List.of(TIMES, DIV, MOD)) {
+            BINARY_PRECEDENCE[kind.ordinal()] = MULTIPLICATIVE_PRECEDENCE;
+        }
+    }
+
+    //FIRST and FOLLOW set of each non-terminal, indexed by ordinal, as a bit mask of Kind ordinals; computed once and never changed
+    private static final long[] FIRST_SETS = new long[NON_TERMINALS.values().length];
+    private static final long[] FOLLOW_SETS = new long[NON_TERMINALS.values().length];
+
+    static {
+        if (Kind.values().length > Long.SIZE) {
+            throw new IllegalStateException("Too many token kinds for a long bit mask");
+        }
         for (NON_TERMINALS T : NON_TERMINALS.values()) {
-            FIRST_SETS.put(T, getFirstSet(T));
-            FOLLOW_SETS.put(T, getFollowSet(T));
+            FIRST_SETS[T.ordinal()] = getFirstSet(T);
+            FOLLOW_SETS[T.ordinal()] = getFollowSet(T);
         }
     }
 
+    //where to resume after a syntax error in a declaration: its SEMI, or anything that can come after the declaration except an IDENT
+    private static final long DECLARATION_SYNC_SET = mask(SEMI, KW_CONST, KW_VAR, KW_PROCEDURE, KW_CALL, QUESTION, BANG, KW_BEGIN, KW_IF, KW_WHILE, KW_END, DOT);
+
+    //syntax errors recovered from so far; null if the parser stops at the first one
+    private final List<SyntaxException> errors;
+    //token the last recorded error was found at, so that an error is only reported once
+    private IToken lastErrorToken;
+
+    public Parser(ILexer lexer) {
+        this(lexer, null);
+    }
+
+    Parser(ILexer lexer, List<SyntaxException> errors) {
+        this.lexer = lexer;
+        this.errors = errors;
+    }
+
     @Override
     public ASTNode parse() throws PLPException {
         return getProgramAST();
@@ -45,9 +82,13 @@ public class Parser implements IParser {
 
     public Program getProgramAST() throws PLPException {
         Block b = getBlockAST();
-        t = lexer.next();
-        isKind(t, DOT);
-        isKind(lexer.next(), EOF);
+        try {
+            match(DOT);
+            match(EOF);
+        } catch (SyntaxException ex) {
+            //nothing can follow the program, so the rest of the input is not parsed
+            record(ex);
+        }
         return new Program(b.firstToken, b);
     }
 
@@ -57,75 +98,52 @@ public class Parser implements IParser {
         while (lexer.peek().getKind() == KW_CONST) {
             t = lexer.next();
             if (firstToken == null) firstToken = t;
-            t = lexer.next();
-            isKind(t, IDENT);
-            IToken ident = t;
-            t = lexer.next();
-            isKind(t, EQ);
-            Expression constValExpression = getConstValAST();
-            Object constVal = null;
-            switch (constValExpression.firstToken.getKind()) {
-                case STRING_LIT -> constVal = constValExpression.firstToken.getStringValue();
-                case BOOLEAN_LIT -> constVal = constValExpression.firstToken.getBooleanValue();
-                case NUM_LIT -> constVal = constValExpression.firstToken.getIntValue();
-            }
-            // TODO: pass calculated constVal
-            // TODO: check if first token passed correctly
-            constDecs.add(new ConstDec(ident, ident, constVal));
-            // TODO: convert all the whiles like this to do while or something
-            while (lexer.peek().getKind() == COMMA) {
-                t = lexer.next();
-                t = lexer.next();
-                isKind(t, IDENT);
-                ident = t;
-                t = lexer.next();
-                isKind(t, EQ);
-                constValExpression = getConstValAST();
-                switch (constValExpression.firstToken.getKind()) {
-                    case STRING_LIT -> constVal = constValExpression.firstToken.getStringValue();
-                    case BOOLEAN_LIT -> constVal = constValExpression.firstToken.getBooleanValue();
-                    case NUM_LIT -> constVal = constValExpression.firstToken.getIntValue();
+            try {
+                constDecs.add(getConstDec());
+                while (lexer.peek().getKind() == COMMA) {
+                    t = lexer.next();
+                    constDecs.add(getConstDec());
                 }
-                // TODO: check if first token passed correctly
-                constDecs.add(new ConstDec(ident, ident, constVal));
+                match(SEMI, mask(COMMA, SEMI));
+            } catch (SyntaxException ex) {
+                recoverDeclaration(ex);
             }
-            t = lexer.next();
-            isKind(t, SEMI);
         }
 
         List<VarDec> varDecs = new ArrayList<VarDec>();
         while (lexer.peek().getKind() == KW_VAR) {
             t = lexer.next();
             if (firstToken == null) firstToken = t;
-            t = lexer.next();
-            isKind(t, IDENT);
-            // TODO: check if first token passed correctly
-            varDecs.add(new VarDec(t, t));
-            while (lexer.peek().getKind() == COMMA) {
-                t = lexer.next();
-                t = lexer.next();
-                isKind(t, IDENT);
+            try {
+                t = match(IDENT);
                 // TODO: check if first token passed correctly
                 varDecs.add(new VarDec(t, t));
+                while (lexer.peek().getKind() == COMMA) {
+                    t = lexer.next();
+                    t = match(IDENT);
+                    // TODO: check if first token passed correctly
+                    varDecs.add(new VarDec(t, t));
+                }
+                match(SEMI, mask(COMMA, SEMI));
+            } catch (SyntaxException ex) {
+                recoverDeclaration(ex);
             }
-            t = lexer.next();
-            isKind(t, SEMI);
         }
 
         List<ProcDec> procDecs = new ArrayList<ProcDec>();
         while (lexer.peek().getKind() == KW_PROCEDURE) {
             t = lexer.next();
             if (firstToken == null) firstToken = t;
-            t = lexer.next();
-            isKind(t, IDENT);
-            IToken ident = t;
-            t = lexer.next();
-            isKind(t, SEMI);
-            Block b = getBlockAST();
-            t = lexer.next();
-            isKind(t, SEMI);
-            // TODO: check if first token passed correctly
-            procDecs.add(new ProcDec(ident, ident, b));
+            try {
+                IToken ident = match(IDENT);
+                match(SEMI);
+                Block b = getBlockAST();
+                // TODO: check if first token passed correctly
+                procDecs.add(new ProcDec(ident, ident, b));
+                match(SEMI);
+            } catch (SyntaxException ex) {
+                recoverDeclaration(ex);
+            }
         }
 
         Statement s = getStatementAST();
@@ -134,27 +152,49 @@ public class Parser implements IParser {
         return new Block(firstToken, constDecs, varDecs, procDecs, s);
     }
 
+    private ConstDec getConstDec() throws PLPException {
+        IToken ident = match(IDENT);
+        match(EQ);
+        Expression constValExpression = getConstValAST();
+        Object constVal = null;
+        switch (constValExpression.firstToken.getKind()) {
+            case STRING_LIT -> constVal = constValExpression.firstToken.getStringValue();
+            case BOOLEAN_LIT -> constVal = constValExpression.firstToken.getBooleanValue();
+            case NUM_LIT -> constVal = constValExpression.firstToken.getIntValue();
+        }
+        // TODO: check if first token passed correctly
+        return new ConstDec(ident, ident, constVal);
+    }
+
     public Statement getStatementAST() throws PLPException {
         IToken nextToken = lexer.peek();
+        try {
+            return getStatement(nextToken);
+        } catch (SyntaxException ex) {
+            //what was parsed of the statement is dropped
+            record(ex);
+            skipTo(FOLLOW_SETS[NON_TERMINALS.STATEMENT.ordinal()]);
+            return new StatementEmpty(nextToken);
+        }
+    }
+
+    private Statement getStatement(IToken nextToken) throws PLPException {
         Kind kind = nextToken.getKind();
         Statement statement;
         switch (kind) {
             case IDENT -> {
                 t = lexer.next();
-                t = lexer.next();
-                isKind(t, ASSIGN);
+                match(ASSIGN);
                 statement = new StatementAssign(nextToken, new Ident(nextToken), getExpressionAST());
             }
             case KW_CALL -> {
                 t = lexer.next();
-                t = lexer.next();
-                isKind(t, IDENT);
+                t = match(IDENT);
                 statement = new StatementCall(nextToken, new Ident(t));
             }
             case QUESTION -> {
                 t = lexer.next();
-                t = lexer.next();
-                isKind(t, IDENT);
+                t = match(IDENT);
                 statement = new StatementInput(nextToken, new Ident(t));
             }
             case BANG -> {
@@ -167,81 +207,64 @@ public class Parser implements IParser {
                 List<Statement> statements = new ArrayList<Statement>();
                 statement = getStatementAST();
                 statements.add(statement);
-                while (lexer.peek().getKind() == SEMI) {
-                    t = lexer.next();
+                while (true) {
+                    Kind nextKind = lexer.peek().getKind();
+                    if (nextKind == SEMI) {
+                        t = lexer.next();
+                    } else if (errors != null && inSet(FIRST_SETS, NON_TERMINALS.STATEMENT, nextKind)) {
+                        //a statement that is not separated from the one before is most likely a missing SEMI
+                        record(error(lexer.peek(), mask(SEMI, KW_END)));
+                    } else {
+                        break;
+                    }
                     statements.add(getStatementAST());
                 }
-                t = lexer.next();
-                isKind(t, KW_END);
+                match(KW_END);
                 statement = new StatementBlock(nextToken, statements);
             }
             case KW_IF -> {
                 t = lexer.next();
                 Expression expression = getExpressionAST();
-                t = lexer.next();
-                isKind(t, KW_THEN);
+                match(KW_THEN);
                 statement = new StatementIf(nextToken, expression, getStatementAST());
             }
             case KW_WHILE -> {
                 t = lexer.next();
                 Expression expression = getExpressionAST();
-                t = lexer.next();
-                isKind(t, KW_DO);
+                match(KW_DO);
                 statement = new StatementWhile(nextToken, expression, getStatementAST());
             }
             default -> {
-                if (FOLLOW_SETS.get(NON_TERMINALS.STATEMENT).contains(kind)) statement = new StatementEmpty(nextToken);
-                else throw new SyntaxException();
+                if (inSet(FOLLOW_SETS, NON_TERMINALS.STATEMENT, kind)) statement = new StatementEmpty(nextToken);
+                else throw error(nextToken, FIRST_SETS[NON_TERMINALS.STATEMENT.ordinal()] | FOLLOW_SETS[NON_TERMINALS.STATEMENT.ordinal()]);
             }
         }
         return statement;
     }
 
     public Expression getExpressionAST() throws PLPException {
-        IToken firstToken = lexer.peek();
-        Kind kind = firstToken.getKind();
-        Expression expression;
-        if (FIRST_SETS.get(NON_TERMINALS.ADDITIVE_EXPRESSION).contains(kind)) {
-            expression = getAdditiveExpressionAST();
-            Kind nextTokenKind = lexer.peek().getKind();
-            while (nextTokenKind == LT || nextTokenKind == GT || nextTokenKind == EQ || nextTokenKind == NEQ || nextTokenKind == LE || nextTokenKind == GE) {
-                t = lexer.next();
-                expression = new ExpressionBinary(firstToken, expression, t, getAdditiveExpressionAST());
-                nextTokenKind = lexer.peek().getKind();
-            }
-        } else throw new SyntaxException();
-        return expression;
+        return getBinaryExpressionAST(RELATIONAL_PRECEDENCE);
     }
 
     public Expression getAdditiveExpressionAST() throws PLPException {
-        IToken firstToken = lexer.peek();
-        Kind kind = firstToken.getKind();
-        Expression expression;
-        if (FIRST_SETS.get(NON_TERMINALS.MULTIPLICATIVE_EXPRESSION).contains(kind)) {
-            expression = getMultiplicativeExpressionAST();
-            Kind nextTokenKind = lexer.peek().getKind();
-            while (nextTokenKind == PLUS || nextTokenKind == MINUS) {
-                t = lexer.next();
-                expression = new ExpressionBinary(firstToken, expression, t, getMultiplicativeExpressionAST());
-                nextTokenKind = lexer.peek().getKind();
-            }
-        } else throw new SyntaxException();
-        return expression;
+        return getBinaryExpressionAST(ADDITIVE_PRECEDENCE);
     }
 
     public Expression getMultiplicativeExpressionAST() throws PLPException {
-        IToken firstToken = lexer.peek();
-        Kind kind = firstToken.getKind();
-        Expression expression = null;
-        if (FIRST_SETS.get(NON_TERMINALS.PRIMARY_EXPRESSION).contains(kind)) {
-            expression = getPrimaryExpressionAST();
-            Kind nextTokenKind = lexer.peek().getKind();
-            while (nextTokenKind == TIMES || nextTokenKind == DIV || nextTokenKind == MOD) {
-                t = lexer.next();
-                expression = new ExpressionBinary(firstToken, expression, t, getPrimaryExpressionAST());
-                nextTokenKind = lexer.peek().getKind();
-            }
-        } else throw new SyntaxException();
+        return getBinaryExpressionAST(MULTIPLICATIVE_PRECEDENCE);
+    }
+
+    //parses a chain of binary operators of at least given precedence by precedence climbing; every level is left associative, and
+    //each ExpressionBinary starts at the first token of the chain it belongs to, as with one method per grammar level
+    private Expression getBinaryExpressionAST(final int minPrecedence) throws PLPException {
+        final IToken firstToken = lexer.peek();
+        Expression expression = getPrimaryExpressionAST();
+        int precedence = BINARY_PRECEDENCE[lexer.peek().getKind().ordinal()];
+        while (precedence >= minPrecedence) {
+            final IToken op = lexer.next();
+            expression = new ExpressionBinary(firstToken, expression, op, getBinaryExpressionAST(precedence + 1));
+            precedence = BINARY_PRECEDENCE[lexer.peek().getKind().ordinal()];
+        }
         return expression;
     }
 
@@ -252,67 +275,116 @@ public class Parser implements IParser {
         if (kind == IDENT) {
             t = lexer.next();
             expression = new ExpressionIdent(t);
-        } else if (FIRST_SETS.get(NON_TERMINALS.CONST_VAL).contains(kind)) {
+        } else if (inSet(FIRST_SETS, NON_TERMINALS.CONST_VAL, kind)) {
             expression = getConstValAST();
         } else if (kind == LPAREN) {
             t = lexer.next();
             expression = getExpressionAST();
-            t = lexer.next();
-            isKind(t, RPAREN);
-        } else throw new SyntaxException();
+            match(RPAREN);
+        } else throw error(firstToken, FIRST_SETS[NON_TERMINALS.PRIMARY_EXPRESSION.ordinal()]);
         return expression;
     }
 
     public Expression getConstValAST() throws PLPException {
-        t = lexer.next();
-        Kind kind = t.getKind();
+        IToken firstToken = lexer.peek();
         Expression constVal;
-        switch (kind) {
-            case NUM_LIT -> constVal = new ExpressionNumLit(t);
-            case STRING_LIT -> constVal = new ExpressionStringLit(t);
-            case BOOLEAN_LIT -> constVal = new ExpressionBooleanLit(t);
-            default -> throw new SyntaxException();
+        switch (firstToken.getKind()) {
+            case NUM_LIT -> constVal = new ExpressionNumLit(lexer.next());
+            case STRING_LIT -> constVal = new ExpressionStringLit(lexer.next());
+            case BOOLEAN_LIT -> constVal = new ExpressionBooleanLit(lexer.next());
+            default -> throw error(firstToken, FIRST_SETS[NON_TERMINALS.CONST_VAL.ordinal()]);
         }
+        t = constVal.firstToken;
         return constVal;
     }
 
-    private void isKind(IToken t, Kind k) throws PLPException {
-        if (t.getKind() != k) throw new SyntaxException();
+    //returns the next token if it is of given kind, otherwise throws without consuming it
+    private IToken match(Kind k) throws PLPException {
+        return match(k, mask(k));
+    }
+
+    //same, where other kinds than k were also possible at this point, e.g. COMMA before the SEMI ending a list
+    private IToken match(Kind k, long expected) throws PLPException {
+        IToken token = lexer.peek();
+        if (token.getKind() != k) throw error(token, expected);
+        return lexer.next();
     }
 
-    private Set<Kind> getFollowSet(NON_TERMINALS type) {
-        Set<Kind> s = null;
-        switch (type) {
-            case PROGRAM -> s = Collections.emptySet();
-            case BLOCK -> s = Collections.singleton(DOT);
-            case STATEMENT -> s = union(getFollowSet(NON_TERMINALS.BLOCK), List.of(SEMI, KW_END));
-            case EXPRESSION -> s = union(getFollowSet(NON_TERMINALS.STATEMENT), List.of(KW_THEN, KW_DO, RPAREN));
-            case ADDITIVE_EXPRESSION -> s = union(getFollowSet(NON_TERMINALS.EXPRESSION), List.of(LT, GT, EQ, NEQ, LE, GE));
-            case MULTIPLICATIVE_EXPRESSION -> s = union(getFollowSet(NON_TERMINALS.ADDITIVE_EXPRESSION), List.of(PLUS, MINUS));
-            case PRIMARY_EXPRESSION -> s = union(getFollowSet(NON_TERMINALS.MULTIPLICATIVE_EXPRESSION), List.of(TIMES, DIV, MOD));
-            case CONST_VAL -> s = union(getFollowSet(NON_TERMINALS.PRIMARY_EXPRESSION), List.of(COMMA, SEMI));
+    private static SyntaxException error(IToken found, long expected) {
+        Set<Kind> expectedKinds = kindsOf(expected);
+        return new SyntaxException("Expected " + (expectedKinds.size() == 1 ? expectedKinds.iterator().next() : "one of " + expectedKinds) + " but found " + found.getKind(), found.getSourceLocation(), expectedKinds);
+    }
+
+    //adds the error to the errors recovered from, or throws it if the parser does not recover
+    private void record(SyntaxException ex) throws PLPException {
+        if (errors == null) throw ex;
+        IToken found = lexer.peek();
+        if (found != lastErrorToken) {
+            errors.add(ex);
+            lastErrorToken = found;
         }
-        return s;
     }
 
-    private Set<Kind> getFirstSet(NON_TERMINALS type) {
-        Set<Kind> s = null;
-        switch (type) {
-            case CONST_VAL -> s = new HashSet<>(List.of(NUM_LIT, STRING_LIT, BOOLEAN_LIT));
-            case PRIMARY_EXPRESSION -> s = union(singleton(IDENT), getFirstSet(NON_TERMINALS.CONST_VAL), singleton(LPAREN));
-            case MULTIPLICATIVE_EXPRESSION -> s = getFirstSet(NON_TERMINALS.PRIMARY_EXPRESSION);
-            case ADDITIVE_EXPRESSION -> s = getFirstSet(NON_TERMINALS.MULTIPLICATIVE_EXPRESSION);
-            case EXPRESSION -> s = getFirstSet(NON_TERMINALS.ADDITIVE_EXPRESSION);
-            case STATEMENT -> s = new HashSet<>(List.of(IDENT, KW_CALL, QUESTION, BANG, KW_BEGIN, KW_IF, KW_WHILE));
-            case BLOCK -> s = union(getFirstSet(NON_TERMINALS.STATEMENT), List.of(KW_CONST, KW_VAR, KW_PROCEDURE));
-            case PROGRAM -> s = getFirstSet(NON_TERMINALS.BLOCK);
+    private void recoverDeclaration(SyntaxException ex) throws PLPException {
+        record(ex);
+        skipTo(DECLARATION_SYNC_SET);
+        if (lexer.peek().getKind() == SEMI) {
+            t = lexer.next();
         }
-        return s;
     }
 
-    @SafeVarargs
-    private static <T> Set<T> union(Collection<T>... collections) {
-        return Arrays.stream(collections).flatMap(Collection::stream).collect(Collectors.toSet());
+    //panic mode: skips tokens until one of the given kinds, or the end of the input
+    private void skipTo(long kinds) throws PLPException {
+        long stop = kinds | mask(EOF);
+        while ((stop & (1L << lexer.peek().getKind().ordinal())) == 0) {
+            t = lexer.next();
+        }
+    }
+
+    private static Set<Kind> kindsOf(long mask) {
+        Set<Kind> kinds = EnumSet.noneOf(Kind.class);
+        for (Kind kind : Kind.values()) {
+            if ((mask & (1L << kind.ordinal())) != 0) kinds.add(kind);
+        }
+        return kinds;
+    }
+
+    private static boolean inSet(final long[] sets, final NON_TERMINALS type, final Kind kind) {
+        return (sets[type.ordinal()] & (1L << kind.ordinal())) != 0;
+    }
+
+    private static long getFollowSet(NON_TERMINALS type) {
+        return switch (type) {
+            case PROGRAM -> 0L;
+            case BLOCK -> mask(DOT);
+            case STATEMENT -> getFollowSet(NON_TERMINALS.BLOCK) | mask(SEMI, KW_END);
+            case EXPRESSION -> getFollowSet(NON_TERMINALS.STATEMENT) | mask(KW_THEN, KW_DO, RPAREN);
+            case ADDITIVE_EXPRESSION -> getFollowSet(NON_TERMINALS.EXPRESSION) | mask(LT, GT, EQ, NEQ, LE, GE);
+            case MULTIPLICATIVE_EXPRESSION -> getFollowSet(NON_TERMINALS.ADDITIVE_EXPRESSION) | mask(PLUS, MINUS);
+            case PRIMARY_EXPRESSION -> getFollowSet(NON_TERMINALS.MULTIPLICATIVE_EXPRESSION) | mask(TIMES, DIV, MOD);
+            case CONST_VAL -> getFollowSet(NON_TERMINALS.PRIMARY_EXPRESSION) | mask(COMMA, SEMI);
+        };
+    }
+
+    private static long getFirstSet(NON_TERMINALS type) {
+        return switch (type) {
+            case CONST_VAL -> mask(NUM_LIT, STRING_LIT, BOOLEAN_LIT);
+            case PRIMARY_EXPRESSION -> mask(IDENT) | getFirstSet(NON_TERMINALS.CONST_VAL) | mask(LPAREN);
+            case MULTIPLICATIVE_EXPRESSION -> getFirstSet(NON_TERMINALS.PRIMARY_EXPRESSION);
+            case ADDITIVE_EXPRESSION -> getFirstSet(NON_TERMINALS.MULTIPLICATIVE_EXPRESSION);
+            case EXPRESSION -> getFirstSet(NON_TERMINALS.ADDITIVE_EXPRESSION);
+            case STATEMENT -> mask(IDENT, KW_CALL, QUESTION, BANG, KW_BEGIN, KW_IF, KW_WHILE);
+            case BLOCK -> getFirstSet(NON_TERMINALS.STATEMENT) | mask(KW_CONST, KW_VAR, KW_PROCEDURE);
+            case PROGRAM -> getFirstSet(NON_TERMINALS.BLOCK);
+        };
+    }
+
+    private static long mask(final Kind... kinds) {
+        long mask = 0L;
+        for (Kind kind : kinds) {
+            mask |= 1L << kind.ordinal();
+        }
+        return mask;
     }
 
 }
@@ -0,0 +1,8 @@
+package edu.ufl.cise.plpfa22;
+
+public enum ParserMode {
+    //recursive descent on the calling thread
+    RECURSIVE_DESCENT,
+    //recursive descent on a worker thread with a large stack, for deeply nested programs
+    WORKER_THREAD
+}
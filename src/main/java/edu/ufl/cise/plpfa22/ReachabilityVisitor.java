@@ -0,0 +1,137 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.*;
+
+/**
+ * Runs after the ConstantFoldingVisitor and before code generation. Marks each procedure that no CALL reachable from the
+ * main block can run as unreachable, so that its class and those of the procedures in it are not generated. Statements
+ * guarded by a condition that is FALSE at compile time cannot run, so the calls in them are not followed; the
+ * CodeGenVisitor leaves out those statements as well.
+ * <p>
+ * The body of a procedure is only visited when the first call to it is found, so each procedure is visited at most
+ * once and the procedures nested in unreachable ones stay unreachable.
+ */
+public class ReachabilityVisitor implements ASTVisitor {
+
+    @Override
+    public Object visitProgram(Program program, Object arg) throws PLPException {
+        markUnreachable(program.block);
+        return program.block.statement.visit(this, arg);
+    }
+
+    private static void markUnreachable(final Block block) {
+        for (final ProcDec dec : block.procedureDecs) {
+            dec.setUnreachable(true);
+            markUnreachable(dec.block);
+        }
+    }
+
+    //a condition is only known to be false after constant folding
+    static boolean isFalse(final Expression condition) {
+        return Boolean.FALSE.equals(condition.getValue());
+    }
+
+    @Override
+    public Object visitBlock(Block block, Object arg) throws PLPException {
+        return block.statement.visit(this, arg);
+    }
+
+    @Override
+    public Object visitStatementAssign(StatementAssign statementAssign, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitVarDec(VarDec varDec, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementCall(StatementCall statementCall, Object arg) throws PLPException {
+        final ProcDec dec = (ProcDec) statementCall.ident.getDec();
+        if (dec.isUnreachable()) {
+            dec.setUnreachable(false);
+            visitProcedure(dec, arg);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitStatementInput(StatementInput statementInput, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementOutput(StatementOutput statementOutput, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementBlock(StatementBlock statementBlock, Object arg) throws PLPException {
+        for (final Statement statement : statementBlock.statements) {
+            statement.visit(this, arg);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitStatementIf(StatementIf statementIf, Object arg) throws PLPException {
+        if (!isFalse(statementIf.expression)) {
+            statementIf.statement.visit(this, arg);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitStatementWhile(StatementWhile statementWhile, Object arg) throws PLPException {
+        if (!isFalse(statementWhile.expression)) {
+            statementWhile.statement.visit(this, arg);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionBinary(ExpressionBinary expressionBinary, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionIdent(ExpressionIdent expressionIdent, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionNumLit(ExpressionNumLit expressionNumLit, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionStringLit(ExpressionStringLit expressionStringLit, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionBooleanLit(ExpressionBooleanLit expressionBooleanLit, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitProcedure(ProcDec procDec, Object arg) throws PLPException {
+        return visitBlock(procDec.block, arg);
+    }
+
+    @Override
+    public Object visitConstDec(ConstDec constDec, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitStatementEmpty(StatementEmpty statementEmpty, Object arg) throws PLPException {
+        return null;
+    }
+
+    @Override
+    public Object visitIdent(Ident ident, Object arg) throws PLPException {
+        return null;
+    }
+}
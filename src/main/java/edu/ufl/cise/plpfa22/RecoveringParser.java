@@ -0,0 +1,43 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser that reports all syntax errors of a program in one pass. After an error it records a SyntaxException with
+ * the location and the expected kinds, skips to a token that can follow the statement or declaration it was in
+ * (panic mode), and goes on. A statement directly followed by another one is taken as a missing SEMI.
+ * <p>
+ * Lexical errors cannot be skipped, so a LexicalException still ends the parse.
+ */
+public class RecoveringParser implements IParser {
+    private final ILexer lexer;
+
+    public RecoveringParser(ILexer lexer) {
+        this.lexer = lexer;
+    }
+
+    public ParseResult parseAll() throws LexicalException {
+        final List<SyntaxException> errors = new ArrayList<>();
+        try {
+            return new ParseResult(new Parser(lexer, errors).parse(), List.copyOf(errors));
+        } catch (LexicalException ex) {
+            throw ex;
+        } catch (PLPException ex) {
+            //syntax errors are recorded instead of thrown
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    //throws the first syntax error, like a parser without recovery would
+    @Override
+    public ASTNode parse() throws PLPException {
+        final ParseResult result = parseAll();
+        if (result.hasErrors()) {
+            throw result.errors().get(0);
+        }
+        return result.ast();
+    }
+}
@@ -0,0 +1,198 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.IToken.Kind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import static edu.ufl.cise.plpfa22.IToken.Kind.*;
+
+/**
+ * Lexer over the language automaton that reads its input from a Reader through a sliding buffer, so memory use does
+ * not depend on the size of the source. Only the chars from the start of the token being scanned are kept; the
+ * buffer grows only for a token (plus the lookahead needed to end it) longer than the buffer.
+ * <p>
+ * The end of the input behaves like the {@code '\0'} sentinel that {@link CompilerComponentFactory} appends for
+ * {@link Lexer}. The reader is closed once the end of the input is reached, or by {@link #close()}.
+ */
+public class StreamingLexer implements ILexer, Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final FSA fsa;
+    private final IdentifierTable identifiers;
+    private char[] buffer;
+    //absolute index in the input of buffer[0], and of the first char not read yet
+    private long bufferStart;
+    private long bufferEnd;
+    //absolute index of the first char that must stay in the buffer
+    private long keepFrom;
+    //true once the sentinel has been added after the last char of the input
+    private boolean endOfInput;
+
+    private long currIndex;
+    private int tokenLine;
+    private int tokenColumn;
+
+    //token found by the last peek() and the position right after it, valid until next() moves past the token
+    private IToken peekedToken;
+    private long peekIndex;
+    private int peekLine;
+    private int peekColumn;
+
+    //rank and length of the longest match found by the last scan()
+    private int matchRank;
+    private int matchLength;
+
+    public StreamingLexer(Reader reader, FSA fsa) {
+        this(reader, fsa, DEFAULT_BUFFER_SIZE);
+    }
+
+    StreamingLexer(Reader reader, FSA fsa, int bufferSize) {
+        this.reader = reader;
+        this.fsa = fsa;
+        this.identifiers = new IdentifierTable();
+        this.buffer = new char[Math.max(bufferSize, 1)];
+        this.bufferStart = this.bufferEnd = this.keepFrom = 0;
+        this.endOfInput = false;
+        this.currIndex = this.peekIndex = 0;
+        this.tokenLine = this.peekLine = 1;
+        this.tokenColumn = this.peekColumn = 1;
+    }
+
+    @Override
+    public IToken next() throws LexicalException {
+        final IToken nextToken = peek();
+        currIndex = peekIndex;
+        tokenLine = peekLine;
+        tokenColumn = peekColumn;
+        peekedToken = null;
+        return nextToken;
+    }
+
+    @Override
+    public IToken peek() throws LexicalException {
+        if (peekedToken == null) {
+            peekedToken = scanToken();
+        }
+        return peekedToken;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    //finds the token starting at the current position and sets the peek position right after it
+    private IToken scanToken() throws LexicalException {
+        peekIndex = currIndex;
+        peekLine = tokenLine;
+        peekColumn = tokenColumn;
+
+        while (isAvailable(peekIndex)) {
+            scan(peekIndex);
+            if (matchRank == Lexer.NEW_LINE_RANK || matchRank == Lexer.COMMENT_RANK) {
+                //a comment includes the line break ending it
+                peekLine++;
+                peekColumn = 1;
+            } else if (matchRank == Lexer.WHITE_SPACE_RANK) {
+                peekColumn++;
+            } else {
+                return createToken();
+            }
+            peekIndex += matchLength;
+        }
+        return TokenFactory.ofKind(EOF, "\0", null);
+    }
+
+    //builds the token matched at peekIndex and moves the peek position past it
+    private IToken createToken() throws LexicalException {
+        final Kind kind = Lexer.KIND_OF_RANK[matchRank];
+        //the buffer is reused, so tokens get their own copy of the text unless the kind has a fixed spelling to view
+        final char[] fixedText = Token.getFixedText(kind);
+        final char[] text = fixedText != null ? fixedText : Arrays.copyOfRange(buffer, (int) (peekIndex - bufferStart), (int) (peekIndex - bufferStart) + matchLength);
+        final Token token = TokenFactory.ofKind(kind, text, 0, text.length, peekLine, peekColumn, identifiers);
+        if (kind == STRING_LIT) {
+            //see testStringLineNum()
+            final StringToken stringToken = (StringToken) token;
+            final int numNewLines = stringToken.getNumNewLines();
+            peekLine += numNewLines;
+            if (numNewLines > 0) {
+                peekColumn = 1;
+            }
+            peekColumn += stringToken.getLastLineLen();
+        } else {
+            if (kind == NUM_LIT) {
+                try {
+                    token.getIntValue();
+                } catch (NumberFormatException ex) {
+                    throw new LexicalException("Invalid integer");
+                }
+            }
+            peekColumn += matchLength;
+        }
+        peekIndex += matchLength;
+        return token;
+    }
+
+    //runs the automaton from given index as long as it can, remembering the longest match seen on the way
+    private void scan(final long index) throws LexicalException {
+        keepFrom = index;
+        int state = FSA.START;
+        matchRank = -1;
+        matchLength = 0;
+        for (long i = index; isAvailable(i); i++) {
+            state = fsa.next(state, buffer[(int) (i - bufferStart)]);
+            if (state == FSA.DEAD) {
+                break;
+            }
+            final int rank = fsa.getAcceptingRank(state);
+            if (rank >= 0) {
+                matchRank = rank;
+                matchLength = (int) (i - index + 1);
+            }
+        }
+        if (matchRank < 0) {
+            throw new LexicalException();
+        }
+    }
+
+    //reads more input until the char at given index is in the buffer; false if the input ends before it
+    private boolean isAvailable(final long index) throws LexicalException {
+        while (index >= bufferEnd) {
+            if (endOfInput) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    private void fill() throws LexicalException {
+        //slide the chars still needed to the front, growing the buffer only if they fill it
+        final int discard = (int) (keepFrom - bufferStart);
+        final int used = (int) (bufferEnd - keepFrom);
+        if (discard > 0) {
+            System.arraycopy(buffer, discard, buffer, 0, used);
+            bufferStart = keepFrom;
+        }
+        if (used == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        try {
+            final int read = reader.read(buffer, used, buffer.length - used);
+            if (read < 0) {
+                buffer[used] = '\0';
+                bufferEnd++;
+                endOfInput = true;
+                reader.close();
+            } else {
+                bufferEnd += read;
+            }
+        } catch (IOException ex) {
+            throw new LexicalException("Cannot read input", ex);
+        }
+    }
+}
@@ -1,27 +1,20 @@
 package edu.ufl.cise.plpfa22;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import static edu.ufl.cise.plpfa22.IToken.Kind.STRING_LIT;
 
 public class StringToken extends Token {
-    private static final Pattern NEW_LINE_PATTERN = Pattern.compile("\n");
-
-    private final int numNewLines;
-    private final int lastLineLen;
+    //number of '\n' in the value, after escape sequences are replaced, and length of the last line of the raw text
+    private int numNewLines;
+    private int lastLineLen;
 
     public StringToken(final String rawText, final SourceLocation location) {
         super(STRING_LIT, rawText.toCharArray(), location);
+        setStringValue(unescape(getText(), 0, rawText.length(), this));
+    }
 
-        final Matcher matcher = NEW_LINE_PATTERN.matcher(getStringValue());
-        int count = 0;
-        while (matcher.find()) {
-            count++;
-        }
-        this.numNewLines = count;
-        final int lastIndex = rawText.lastIndexOf("\n");
-        this.lastLineLen = rawText.length() - (lastIndex >= 0 ? lastIndex + 1 : 0);
+    StringToken(final char[] source, final int offset, final int length, final long position) {
+        super(STRING_LIT, source, offset, length, position, null);
+        setStringValue(unescape(source, offset, length, this));
     }
 
     public int getNumNewLines() {
@@ -31,4 +24,71 @@ public class StringToken extends Token {
     public int getLastLineLen() {
         return lastLineLen;
     }
+
+    /**
+     * Returns the value of the literal in chars[offset, offset + length): the text between the quotes with escape
+     * sequences replaced. A backslash that does not start an escape sequence is kept. If lines is not null, the line
+     * counts of the literal are set on it in the same pass.
+     */
+    static String unescape(final char[] chars, final int offset, final int length, final StringToken lines) {
+        final int end = offset + length;
+        int lastRawNewLine = offset - 1;
+        int numNewLines = 0;
+        int begin = offset;
+        int valueEnd = end;
+        if (length >= 2 && chars[offset] == '"' && chars[end - 1] == '"') {
+            begin++;
+            valueEnd--;
+        }
+        //the value is only copied char by char from the first escape sequence on
+        char[] value = null;
+        int valueLength = 0;
+        for (int i = begin; i < valueEnd; i++) {
+            char ch = chars[i];
+            if (ch == '\\' && i + 1 < valueEnd) {
+                final char escaped = escapedChar(chars[i + 1]);
+                if (escaped != 0) {
+                    if (value == null) {
+                        value = new char[valueEnd - begin];
+                        valueLength = i - begin;
+                        System.arraycopy(chars, begin, value, 0, valueLength);
+                    }
+                    value[valueLength++] = escaped;
+                    if (escaped == '\n') {
+                        numNewLines++;
+                    }
+                    i++;
+                    continue;
+                }
+            }
+            if (ch == '\n') {
+                numNewLines++;
+                lastRawNewLine = i;
+            }
+            if (value != null) {
+                value[valueLength++] = ch;
+            }
+        }
+        if (lines != null) {
+            //a raw newline can only be inside the quotes, so the closing quote is always on the last line
+            lines.numNewLines = numNewLines;
+            lines.lastLineLen = end - (lastRawNewLine + 1);
+        }
+        return value == null ? new String(chars, begin, valueEnd - begin) : new String(value, 0, valueLength);
+    }
+
+    //char denoted by the escape sequence of a backslash and given char, or 0 if it is not an escape sequence
+    private static char escapedChar(final char ch) {
+        return switch (ch) {
+            case 'b' -> '\b';
+            case 't' -> '\t';
+            case 'n' -> '\n';
+            case 'f' -> '\f';
+            case 'r' -> '\r';
+            case '"' -> '"';
+            case '\'' -> '\'';
+            case '\\' -> '\\';
+            default -> 0;
+        };
+    }
 }
@@ -1,10 +1,17 @@
 package edu.ufl.cise.plpfa22;
 
+import edu.ufl.cise.plpfa22.IToken.Kind;
 import edu.ufl.cise.plpfa22.IToken.SourceLocation;
 
+import java.util.Set;
+
 @SuppressWarnings("serial")
 public class SyntaxException extends PLPException {
 
+	//where the error was found and what the parser expected there, if known
+	private SourceLocation location;
+	private Set<Kind> expected;
+
 	public SyntaxException() {
 		super();
 	}
@@ -17,6 +24,12 @@ public class SyntaxException extends PLPException {
 		super(loc.line()+ ":" + loc.column() + " " + error_message);
 	}
 
+	public SyntaxException(String error_message, SourceLocation loc, Set<Kind> expected) {
+		super(loc == null ? error_message : loc.line() + ":" + loc.column() + " " + error_message);
+		this.location = loc;
+		this.expected = Set.copyOf(expected);
+	}
+
 	public SyntaxException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
 		super(message, cause, enableSuppression, writableStackTrace);
 	}
@@ -33,5 +46,12 @@ public class SyntaxException extends PLPException {
 		super(cause);
 	}
 
+	public SourceLocation getSourceLocation() {
+		return location;
+	}
+
+	public Set<Kind> getExpected() {
+		return expected;
+	}
 
 }
@@ -2,29 +2,88 @@ package edu.ufl.cise.plpfa22;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static edu.ufl.cise.plpfa22.IToken.Kind.*;
 
+/**
+ * A token is a view of its text in the source buffer of the lexer that found it, so no text is copied until
+ * {@link #getText()} is called, and identifiers carry the spelling interned by their lexer. A lexer whose buffer is
+ * reused, as the StreamingLexer's is, makes the tokens of a kind that is always spelled the same way views of the
+ * spelling in {@link #getFixedText(Kind)} instead of copying their text, as does the FastLexer for the EOF past the
+ * end of its input. The line and column are packed into one long, and the SourceLocation record is only created when
+ * asked for.
+ */
 public class Token implements IToken {
 
     public static final char[] ESCAPED_SYMBOLS = {'b', 't', 'n', 'f', 'r', '"', '\'', '\\'};
+    //position of a token without source location, e.g. the EOF after the end of the input
+    static final long NO_POSITION = -1L;
+    //text of each kind that has only one spelling, null for the other kinds; tokens that view it must not change it
+    private static final char[][] FIXED_TEXT = new char[Kind.values().length][];
+
+    static {
+        final Kind[] kinds = {EOF, DOT, COMMA, SEMI, QUOTE, LPAREN, RPAREN, PLUS, MINUS, TIMES, DIV, MOD, QUESTION, BANG, ASSIGN, EQ, NEQ, LT, LE, GT, GE, KW_CONST, KW_VAR, KW_PROCEDURE, KW_CALL, KW_BEGIN, KW_END, KW_IF, KW_THEN, KW_WHILE, KW_DO};
+        final String[] spellings = {"\0", ".", ",", ";", "\"", "(", ")", "+", "-", "*", "/", "%", "?", "!", ":=", "=", "#", "<", "<=", ">", ">=", "CONST", "VAR", "PROCEDURE", "CALL", "BEGIN", "END", "IF", "THEN", "WHILE", "DO"};
+        for (int i = 0; i < kinds.length; i++) {
+            FIXED_TEXT[kinds[i].ordinal()] = spellings[i].toCharArray();
+        }
+    }
+
     private final Kind kind;
+    //the text of the token is source[offset, offset + length)
+    private char[] source;
+    private int offset;
+    private int length;
     private char[] text;
-    private final SourceLocation sourceLocation;
+    //line in the high and column in the low 32 bits
+    private long position;
+    private SourceLocation sourceLocation;
 
-    private Integer intValue;
-    private Boolean boolValue;
+    private int intValue;
+    private boolean hasIntValue;
     private String stringValue;
 
     public Token(Kind kind, char[] text, SourceLocation sourceLocation) {
         this.kind = kind;
-        this.text = text;
+        this.source = this.text = text;
+        this.offset = 0;
+        this.length = text.length;
+        this.position = sourceLocation == null ? NO_POSITION : position(sourceLocation.line(), sourceLocation.column());
         this.sourceLocation = sourceLocation;
+    }
+
+    //identValue is the interned spelling of an IDENT, null for other kinds
+    Token(Kind kind, char[] source, int offset, int length, long position, String identValue) {
+        this.kind = kind;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.position = position;
+        this.stringValue = identValue;
+    }
+
+    static long position(final int line, final int column) {
+        return ((long) line << 32) | (column & 0xffffffffL);
+    }
+
+    //moves the view to another source holding the same text offsetDelta chars, lineDelta lines and columnDelta columns further on
+    void rebase(final char[] source, final int offsetDelta, final int lineDelta, final int columnDelta) {
+        this.source = source;
+        this.offset += offsetDelta;
+        if (position != NO_POSITION && (lineDelta != 0 || columnDelta != 0)) {
+            position = position(getLine() + lineDelta, getColumn() + columnDelta);
+            sourceLocation = null;
+        }
+    }
 
-        this.intValue = null;
-        this.boolValue = null;
+    //index of the first char of the token in its source
+    int getOffset() {
+        return offset;
+    }
+
+    //text of given kind if it has only one spelling, otherwise null, for lexers that cannot view the text in their input
+    static char[] getFixedText(final Kind kind) {
+        return FIXED_TEXT[kind.ordinal()];
     }
 
     @Override
@@ -34,23 +93,43 @@ public class Token implements IToken {
 
     @Override
     public char[] getText() {
+        //the source is shared with other tokens, the lexer's input or a fixed spelling, so each token gets its own copy
+        if (text == null) {
+            text = Arrays.copyOfRange(source, offset, offset + length);
+        }
         return text;
     }
 
     public void setText(char[] text) {
-        this.text = text;
+        this.source = this.text = text;
+        this.offset = 0;
+        this.length = text.length;
+        this.hasIntValue = false;
+        this.stringValue = null;
     }
 
     @Override
     public SourceLocation getSourceLocation() {
+        if (sourceLocation == null && position != NO_POSITION) {
+            sourceLocation = new SourceLocation(getLine(), getColumn());
+        }
         return sourceLocation;
     }
 
+    public int getLine() {
+        return (int) (position >>> 32);
+    }
+
+    public int getColumn() {
+        return (int) position;
+    }
+
     @Override
     public int getIntValue() {
         throwIfInvalidKind(getKind(), NUM_LIT);
-        if (intValue == null) {
-            intValue = Integer.parseInt(new String(getText()));
+        if (!hasIntValue) {
+            intValue = parseInt(source, offset, length);
+            hasIntValue = true;
         }
         return intValue;
     }
@@ -58,67 +137,49 @@ public class Token implements IToken {
     @Override
     public boolean getBooleanValue() {
         throwIfInvalidKind(getKind(), BOOLEAN_LIT);
-        if (boolValue == null) {
-            boolValue = Boolean.parseBoolean(new String(getText()));
+        //same as Boolean.parseBoolean
+        final String trueText = "true";
+        if (length != trueText.length()) {
+            return false;
         }
-        return boolValue;
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase(source[offset + i]) != trueText.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public String getStringValue() {
         throwIfInvalidKind(getKind(), STRING_LIT, IDENT);
         if (stringValue == null) {
-            final StringBuilder joined = new StringBuilder();
-            final int num = ESCAPED_SYMBOLS.length;
-            for (int i = 0; i < num; i++) {
-                if (ESCAPED_SYMBOLS[i] == '\\') joined.append("\\\\");
-                else joined.append(ESCAPED_SYMBOLS[i]);
-            }
-            String text = new String(getText());
-            final Pattern quotesPattern = Pattern.compile("\"(.*)\"", Pattern.DOTALL);
-            final Matcher quotesMatcher = quotesPattern.matcher(text);
-            text = quotesMatcher.replaceAll("$1");
-
-            final Pattern pattern = Pattern.compile("\\\\[" + joined + "]", Pattern.DOTALL);
-            final Matcher matcher = pattern.matcher(text);
-            final StringBuilder escapeReplacedString = new StringBuilder();
-            while (matcher.find()) {
-                final String escapeCharString = matcher.group();
-                switch (escapeCharString) {
-                    case "\\b":
-                        matcher.appendReplacement(escapeReplacedString, Character.toString('\b'));
-                        break;
-                    case "\\t":
-                        matcher.appendReplacement(escapeReplacedString, Character.toString('\t'));
-                        break;
-                    case "\\n":
-                        matcher.appendReplacement(escapeReplacedString, Character.toString('\n'));
-                        break;
-                    case "\\f":
-                        matcher.appendReplacement(escapeReplacedString, Character.toString('\f'));
-                        break;
-                    case "\\r":
-                        matcher.appendReplacement(escapeReplacedString, Character.toString('\r'));
-                        break;
-                    case "\\\"":
-                        matcher.appendReplacement(escapeReplacedString, Character.toString('"'));
-                        break;
-                    case "\\'":
-                        matcher.appendReplacement(escapeReplacedString, Character.toString('\''));
-                        break;
-                    case "\\\\":
-                        matcher.appendReplacement(escapeReplacedString, "\\\\");
-                        break;
-                    default:
-                        System.out.println(escapeCharString);
-                }
-            }
-            matcher.appendTail(escapeReplacedString);
-            stringValue = escapeReplacedString.toString();
+            stringValue = kind == IDENT ? new String(source, offset, length) : StringToken.unescape(source, offset, length, null);
         }
         return stringValue;
     }
 
+    //lets a StringToken cache the value it computed together with its line counts
+    void setStringValue(final String stringValue) {
+        this.stringValue = stringValue;
+    }
+
+    //decimal value of the digits in chars[offset, offset + length), like Integer.parseInt without a sign
+    private static int parseInt(final char[] chars, final int offset, final int length) {
+        if (length == 0) {
+            throw new NumberFormatException("Empty number");
+        }
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + new String(chars, offset, length) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
     private static void throwIfInvalidKind(final Kind is, final Kind... expected) {
         final List<Kind> expectedKinds = Arrays.asList(expected);
         if (!expectedKinds.contains(is)) {
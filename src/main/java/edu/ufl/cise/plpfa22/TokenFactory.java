@@ -2,6 +2,7 @@ package edu.ufl.cise.plpfa22;
 
 import edu.ufl.cise.plpfa22.IToken.Kind;
 
+import static edu.ufl.cise.plpfa22.IToken.Kind.IDENT;
 import static edu.ufl.cise.plpfa22.IToken.Kind.STRING_LIT;
 
 public final class TokenFactory {
@@ -14,4 +15,14 @@ public final class TokenFactory {
         }
         return new Token(kind, text.toCharArray(), location);
     }
+
+    //token viewing source[offset, offset + length), which must not change afterwards; identifiers are interned in given table
+    static Token ofKind(final Kind kind, final char[] source, final int offset, final int length, final int line, final int column, final IdentifierTable identifiers) {
+        final long position = Token.position(line, column);
+        if (kind == STRING_LIT) {
+            return new StringToken(source, offset, length, position);
+        }
+        final String identValue = kind == IDENT ? identifiers.intern(source, offset, length) : null;
+        return new Token(kind, source, offset, length, position, identValue);
+    }
 }
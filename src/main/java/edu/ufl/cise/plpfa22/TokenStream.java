@@ -0,0 +1,274 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.IToken.Kind;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static edu.ufl.cise.plpfa22.IToken.Kind.*;
+
+/**
+ * All tokens of an input, lexed in one pass into parallel arrays of kind, start, length, line and column. As an ILexer
+ * it returns the tokens in order, creating each Token only when it is reached, but any token can also be read or
+ * returned to by index.
+ * <p>
+ * The last entry is either an EOF without source location, like the one a lexer returns after the end of its input,
+ * or an ERROR for the token that could not be scanned. Reaching the ERROR throws the LexicalException the lexer
+ * would have thrown there.
+ */
+public class TokenStream implements ILexer {
+    private static final Kind[] KINDS = Kind.values();
+    private static final int FORMAT_VERSION = 2;
+
+    private final char[] source;
+    private final IdentifierTable identifiers;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] columns;
+    private int size;
+    //message of the exception for the ERROR entry, if the stream ends with one
+    private String errorMessage;
+
+    private int index;
+    //token of the entry at index, so that peek() and next() return the same object
+    private IToken current;
+
+    TokenStream(char[] source, int capacity) {
+        this.source = source;
+        this.identifiers = new IdentifierTable();
+        this.kinds = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.columns = new int[capacity];
+        this.size = 0;
+        this.index = 0;
+    }
+
+    void add(final Kind kind, final int start, final int length, final int line, final int column) {
+        if (size == kinds.length) {
+            grow();
+        }
+        kinds[size] = (byte) kind.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    //the end entry records where the input ended, e.g. to know the line the next part of a longer input starts at
+    void addEnd(final int line, final int column) {
+        add(EOF, source.length, 0, line, column);
+    }
+
+    void addError(final String message, final int start, final int line, final int column) {
+        add(ERROR, start, 0, line, column);
+        errorMessage = message;
+    }
+
+    //appends the entries of a stream lexed from a later part of the same source, moving them down by lineOffset lines;
+    //the end entry of the chunk is left out
+    void append(final TokenStream chunk, final int lineOffset) {
+        append(chunk, 0, chunk.getKind(chunk.size - 1) == EOF ? chunk.size - 1 : chunk.size, 0, lineOffset);
+    }
+
+    //appends entries [from, to) of given stream, moving them startOffset chars to the right and lineOffset lines down
+    void append(final TokenStream other, final int from, final int to, final int startOffset, final int lineOffset) {
+        final int count = to - from;
+        while (size + count > kinds.length) {
+            grow();
+        }
+        System.arraycopy(other.kinds, from, kinds, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        System.arraycopy(other.columns, from, columns, size, count);
+        for (int i = 0; i < count; i++) {
+            starts[size + i] = other.starts[from + i] + startOffset;
+            lines[size + i] = other.lines[from + i] + lineOffset;
+        }
+        size += count;
+        if (to == other.size && other.errorMessage != null) {
+            errorMessage = other.errorMessage;
+        }
+    }
+
+    //moves entries [from, to) columnOffset columns to the right
+    void shiftColumns(final int from, final int to, final int columnOffset) {
+        for (int i = from; i < to; i++) {
+            columns[i] += columnOffset;
+        }
+    }
+
+    //drops the entries from given index on
+    void truncate(final int size) {
+        if (this.size > size) {
+            this.size = size;
+            if (index >= size) {
+                index = Math.max(size - 1, 0);
+                current = null;
+            }
+        }
+    }
+
+    //index of the entry starting at given char index, or -1 if no entry starts there
+    int indexOfStart(final int start) {
+        final int i = Arrays.binarySearch(starts, 0, size, start);
+        return i < 0 ? -1 : i;
+    }
+
+    @Override
+    public IToken next() throws LexicalException {
+        final IToken token = peek();
+        //the last entry is returned again and again, like the EOF of a lexer
+        if (index < size - 1) {
+            index++;
+            current = null;
+        }
+        return token;
+    }
+
+    @Override
+    public IToken peek() throws LexicalException {
+        if (current == null) {
+            current = get(index);
+        }
+        return current;
+    }
+
+    //returns the token k positions after the next one, or the last entry if there are fewer tokens left
+    public IToken peek(final int k) throws LexicalException {
+        return k == 0 ? peek() : get(Math.min(index + k, size - 1));
+    }
+
+    public IToken get(final int i) throws LexicalException {
+        final IToken token = tokenAt(i);
+        if (token == null) {
+            throw new LexicalException(errorMessage);
+        }
+        return token;
+    }
+
+    //token of given entry, or null for an ERROR
+    IToken tokenAt(final int i) {
+        final Kind kind = getKind(i);
+        if (kind == ERROR) {
+            return null;
+        }
+        if (i == size - 1 && kind == EOF) {
+            return TokenFactory.ofKind(EOF, "\0", null);
+        }
+        return TokenFactory.ofKind(kind, source, starts[i], lengths[i], lines[i], columns[i], identifiers);
+    }
+
+    //number of entries, including the EOF or ERROR at the end
+    public int size() {
+        return size;
+    }
+
+    //index of the entry next() returns
+    public int getIndex() {
+        return index;
+    }
+
+    public void seek(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token index " + index + " out of range for " + size + " tokens");
+        }
+        if (index != this.index) {
+            this.index = index;
+            current = null;
+        }
+    }
+
+    public Kind getKind(final int i) {
+        return KINDS[kinds[checkIndex(i)]];
+    }
+
+    public int getStart(final int i) {
+        return starts[checkIndex(i)];
+    }
+
+    public int getLength(final int i) {
+        return lengths[checkIndex(i)];
+    }
+
+    public int getLine(final int i) {
+        return lines[checkIndex(i)];
+    }
+
+    public int getColumn(final int i) {
+        return columns[checkIndex(i)];
+    }
+
+    //writes the entries, but not the source, e.g. for a compile cache; see readFrom()
+    public void writeTo(final DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(source.length);
+        out.writeLong(checksum(source));
+        out.writeInt(size);
+        out.write(kinds, 0, size);
+        for (int[] column : new int[][]{starts, lengths, lines, columns}) {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(column[i]);
+            }
+        }
+        out.writeBoolean(errorMessage != null);
+        if (errorMessage != null) {
+            out.writeUTF(errorMessage);
+        }
+    }
+
+    //reads entries written by writeTo() for a stream lexed from given source
+    static TokenStream readFrom(final DataInput in, final char[] source) throws IOException {
+        final int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported token stream version " + version);
+        }
+        //a source of the same length may have been edited, so its chars are checked as well
+        if (in.readInt() != source.length || in.readLong() != checksum(source)) {
+            throw new IOException("Token stream was written for another source");
+        }
+        final int size = in.readInt();
+        final TokenStream stream = new TokenStream(source, Math.max(size, 1));
+        in.readFully(stream.kinds, 0, size);
+        for (int[] column : new int[][]{stream.starts, stream.lengths, stream.lines, stream.columns}) {
+            for (int i = 0; i < size; i++) {
+                column[i] = in.readInt();
+            }
+        }
+        stream.size = size;
+        if (in.readBoolean()) {
+            stream.errorMessage = in.readUTF();
+        }
+        return stream;
+    }
+
+    //64-bit FNV-1a hash of the chars of the source
+    static long checksum(final char[] source) {
+        long hash = 0xcbf29ce484222325L;
+        for (final char c : source) {
+            hash = (hash ^ c) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private int checkIndex(final int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Token index " + i + " out of range for " + size + " tokens");
+        }
+        return i;
+    }
+
+    private void grow() {
+        final int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        columns = Arrays.copyOf(columns, capacity);
+    }
+}
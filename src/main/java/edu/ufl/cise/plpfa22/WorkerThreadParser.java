@@ -0,0 +1,55 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs another parser on a thread of its own with a stack large enough for programs nested hundreds of thousands of
+ * levels deep, e.g. BEGIN blocks, IF and WHILE chains or parentheses in generated code. The stack size is only an
+ * upper bound: the memory of the stack is committed as the parser uses it. A program nested even deeper is reported
+ * as a SyntaxException instead of a StackOverflowError.
+ */
+public class WorkerThreadParser implements IParser {
+    //about a million levels of the deepest kind of nesting, parentheses
+    static final long DEFAULT_STACK_SIZE = 1L << 30;
+
+    private final IParser parser;
+    private final long stackSize;
+
+    public WorkerThreadParser(IParser parser) {
+        this(parser, DEFAULT_STACK_SIZE);
+    }
+
+    public WorkerThreadParser(IParser parser, long stackSize) {
+        this.parser = parser;
+        this.stackSize = stackSize;
+    }
+
+    @Override
+    public ASTNode parse() throws PLPException {
+        final FutureTask<ASTNode> task = new FutureTask<>(parser::parse);
+        final Thread worker = new Thread(null, task, "plp-parser", stackSize);
+        worker.start();
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            worker.interrupt();
+            Thread.currentThread().interrupt();
+            throw new PLPException("Interrupted while parsing", ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof PLPException plpException) {
+                throw plpException;
+            } else if (cause instanceof StackOverflowError) {
+                throw new SyntaxException("Program is nested too deeply", cause);
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new PLPException(cause);
+        }
+    }
+}
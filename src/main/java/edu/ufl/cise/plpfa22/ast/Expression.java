@@ -10,6 +10,8 @@ import edu.ufl.cise.plpfa22.ast.Types.Type;
 public abstract class Expression extends ASTNode {
 	
 	Type type;
+	//value of the expression if known at compile time, set by the ConstantFoldingVisitor
+	Object value;
 	
 
 	public Expression(IToken firstToken) {
@@ -27,5 +29,15 @@ public abstract class Expression extends ASTNode {
 	}
 
 
+	public Object getValue() {
+		return value;
+	}
+
+
+	public void setValue(Object value) {
+		this.value = value;
+	}
+
+
 
 }
@@ -12,6 +12,8 @@ public class ExpressionBinary extends Expression {
 	public final Expression e0;
 	public final IToken op;
 	public final Expression e1;
+	//operand the expression simplifies to, such as x in x * 1
+	Expression simplified;
 	
 	public ExpressionBinary(IToken firstToken, Expression e0, IToken op, Expression e1) {
 		super(firstToken);
@@ -25,6 +27,14 @@ public class ExpressionBinary extends Expression {
 		return v.visitExpressionBinary(this, arg);
 	}
 
+	public Expression getSimplified() {
+		return simplified;
+	}
+
+	public void setSimplified(Expression simplified) {
+		this.simplified = simplified;
+	}
+
 	@Override
 	public String toString() {
 		return "ExpressionBinary [" + (e0 != null ? "e0=" + e0 + ", " : "") + (op != null ? "op=" + op + ", " : "")
@@ -11,6 +11,8 @@ public class ProcDec extends Declaration {
 
 	public final IToken ident;
 	public final Block block;
+	//set by the ReachabilityVisitor if no CALL that can run reaches the procedure
+	boolean unreachable;
 	
 
 	public ProcDec(IToken firstToken, IToken name, Block body) {
@@ -25,6 +27,14 @@ public class ProcDec extends Declaration {
 		return v.visitProcedure(this, arg);
 	}
 
+	public boolean isUnreachable() {
+		return unreachable;
+	}
+
+	public void setUnreachable(boolean unreachable) {
+		this.unreachable = unreachable;
+	}
+
 	@Override
 	public String toString() {
 		return "ProcDec [" + (ident != null ? "ident=" + ident + ", " : "") + (block != null ? "block=" + block : "") + "]";
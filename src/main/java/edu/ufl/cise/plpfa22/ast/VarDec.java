@@ -10,6 +10,8 @@ import edu.ufl.cise.plpfa22.PLPException;
 public class VarDec extends Declaration {
 	
 	public final IToken ident;
+	//set by the LocalVariableVisitor if no procedure nested in the block of the variable uses it
+	boolean local;
 
 	public VarDec(IToken firstToken, IToken id) {
 		super(firstToken);
@@ -21,6 +23,14 @@ public class VarDec extends Declaration {
 		return v.visitVarDec(this, arg);
 	}
 
+	public boolean isLocal() {
+		return local;
+	}
+
+	public void setLocal(boolean local) {
+		this.local = local;
+	}
+
 	@Override
 	public String toString() {
 		return "VarDec [" + (ident != null ? "ident=" + ident + ", " : "") + (type != null ? "type=" + type : "") + "]";
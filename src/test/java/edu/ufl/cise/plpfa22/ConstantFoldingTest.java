@@ -0,0 +1,193 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.DynamicClassLoader;
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import edu.ufl.cise.plpfa22.ast.ExpressionBinary;
+import edu.ufl.cise.plpfa22.ast.Program;
+import edu.ufl.cise.plpfa22.ast.StatementBlock;
+import edu.ufl.cise.plpfa22.ast.StatementOutput;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the values and simplifications the ConstantFoldingVisitor finds, and that the folded programs print the same
+ * as the programs compiled without it, with less code.
+ */
+class ConstantFoldingTest {
+
+    static final String PROGRAM = """
+            CONST n = 6, s = "ab", t = TRUE;
+            VAR x, b, u;
+            BEGIN
+              x := 3; b := FALSE; u := "u";
+              ! n * 7 - 2;
+              ! (n + 1) / 2 % 2;
+              ! x * 1;
+              ! 0 + x;
+              ! x - 0;
+              ! t * b;
+              ! b + FALSE;
+              ! u + "";
+              ! "" + u;
+              ! s + "c";
+              ! "a" < s;
+              ! s < s;
+              ! s <= "ab";
+              ! "xab" > s;
+              ! s >= "b";
+              ! "ab" = s;
+              ! s # "ba";
+              ! n < 7;
+              ! n >= 7;
+              ! FALSE < t;
+              ! t = (n # 6);
+              ! x + n * 2
+            END
+            .
+            """;
+
+    static Program compile(String input, boolean fold) throws PLPException {
+        Program program = (Program) CompilerComponentFactory.getParser(CompilerComponentFactory.getLexer(input)).parse();
+        program.visit(CompilerComponentFactory.getScopeVisitor(), null);
+        program.visit(CompilerComponentFactory.getTypeInferenceVisitor(), null);
+        if (fold) {
+            program.visit(CompilerComponentFactory.getConstantFoldingVisitor(), null);
+        }
+        return program;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<GenClass> generate(ASTNode program) throws PLPException {
+        return (List<GenClass>) program.visit(CompilerComponentFactory.getCodeGenVisitor("prog", "edu/ufl/cise/plpfa22", ""), null);
+    }
+
+    static String run(List<GenClass> classes) throws Exception {
+        Class<?> mainClass = new DynamicClassLoader().define(classes);
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes));
+        try {
+            mainClass.getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        } finally {
+            System.setOut(out);
+        }
+        return bytes.toString();
+    }
+
+    //number of instructions of the run methods
+    static int countInstructions(List<GenClass> classes) {
+        int[] count = {0};
+        for (GenClass genClass : classes) {
+            new ClassReader(genClass.byteCode()).accept(new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    if (!name.equals("run")) return null;
+                    return new MethodVisitor(Opcodes.ASM9) {
+                        @Override
+                        public void visitInsn(int opcode) {
+                            count[0]++;
+                        }
+
+                        @Override
+                        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+                            count[0]++;
+                        }
+
+                        @Override
+                        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                            count[0]++;
+                        }
+
+                        @Override
+                        public void visitJumpInsn(int opcode, org.objectweb.asm.Label label) {
+                            count[0]++;
+                        }
+                    };
+                }
+            }, 0);
+        }
+        return count[0];
+    }
+
+    @Test
+    void testValues() throws PLPException {
+        Program program = compile(PROGRAM, true);
+        List<?> statements = ((StatementBlock) program.block.statement).statements;
+        Object[] expected = {40, 1, null, null, null, null, null, null, null, "abc", true, false, true, true, true, true, true, true, false,
+                true, false, null};
+        for (int i = 0; i < expected.length; i++) {
+            StatementOutput output = (StatementOutput) statements.get(i + 3);
+            assertEquals(expected[i], output.expression.getValue(), "statement " + (i + 3));
+        }
+    }
+
+    @Test
+    void testSimplified() throws PLPException {
+        Program program = compile(PROGRAM, true);
+        List<?> statements = ((StatementBlock) program.block.statement).statements;
+        //x * 1, 0 + x, x - 0, t * b, b + FALSE, u + "", "" + u
+        boolean[] left = {true, false, true, false, true, true, false};
+        for (int i = 0; i < left.length; i++) {
+            ExpressionBinary expression = (ExpressionBinary) ((StatementOutput) statements.get(i + 5)).expression;
+            assertSame(left[i] ? expression.e0 : expression.e1, expression.getSimplified(), "statement " + (i + 5));
+        }
+        //only the constant operand of x + n * 2 is folded
+        ExpressionBinary sum = (ExpressionBinary) ((StatementOutput) statements.get(statements.size() - 1)).expression;
+        assertNull(sum.getSimplified());
+        assertEquals(12, sum.e1.getValue());
+    }
+
+    @Test
+    void testSameOutputWithLessCode() throws Exception {
+        List<GenClass> plain = generate(compile(PROGRAM, false));
+        List<GenClass> folded = generate(compile(PROGRAM, true));
+        assertEquals(run(plain), run(folded));
+        //the instructions of any program, which writes its output at the end, are left out
+        int empty = countInstructions(generate(compile(".", false)));
+        assertTrue(countInstructions(folded) - empty < (countInstructions(plain) - empty) / 2);
+    }
+
+    @Test
+    void testConstantsInProcedures() throws Exception {
+        String input = """
+                CONST a = 2;
+                VAR r;
+                PROCEDURE p;
+                  CONST b = 3;
+                  PROCEDURE q;
+                    r := a * b + r;
+                  CALL q;
+                BEGIN
+                  r := 1;
+                  CALL p;
+                  ! r
+                END
+                .
+                """;
+        assertEquals(run(generate(compile(input, false))), run(generate(compile(input, true))));
+    }
+
+    @Test
+    void testDivisionByZeroNotFolded() throws Exception {
+        String input = """
+                CONST zero = 0;
+                ! 1 / zero
+                .
+                """;
+        Program program = compile(input, true);
+        assertNull(((StatementOutput) program.block.statement).expression.getValue());
+        InvocationTargetException ex = assertThrows(InvocationTargetException.class, () -> run(generate(program)));
+        assertInstanceOf(ArithmeticException.class, ex.getCause());
+    }
+}
@@ -0,0 +1,117 @@
+package edu.ufl.cise.plpfa22;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every LexerTest case against the FAST lexer while checking that each token, and each failure, is identical to
+ * the one produced by the reference lexer. Random inputs are compared the same way.
+ */
+class FastLexerTest extends LexerTest {
+
+    @Override
+    ILexer getLexer(String input) {
+        return new DifferentialLexer(CompilerComponentFactory.getLexer(input), CompilerComponentFactory.getLexer(input, LexerMode.FAST));
+    }
+
+    static final String[] FRAGMENTS = {
+            "CONST", "VAR", "PROCEDURE", "CALL", "BEGIN", "END", "IF", "THEN", "WHILE", "DO", "TRUE", "FALSE",
+            "C", "CO", "T", "TR", "FA", "D", "x", "abc", "a1", "$_", "_9", "0", "00", "12", "2147483647", "2147483648",
+            ".", ",", ";", "(", ")", "+", "-", "*", "/", "%", "?", "!", ":=", ":", "=", "#", "<", "<=", ">", ">=",
+            " ", "\t", "\r", "\n", "\r\n", "\0", "//", "// note", "\"", "\"str\"", "\"a\\nb\"", "\"\\q\"", "\\", "\"multi\nline\"",
+            "@", "~", "\u00e9", "\uffff"
+    };
+
+    @Test
+    void testTextIsCopied() throws LexicalException {
+        //tokens view the input of the lexer, which a caller changing the text must not change
+        final ILexer first = CompilerComponentFactory.getLexer("CONST :=", LexerMode.FAST);
+        first.next().getText()[0] = 'X';
+        first.next().getText()[0] = 'X';
+        final ILexer second = CompilerComponentFactory.getLexer("CONST :=", LexerMode.FAST);
+        assertEquals("CONST", String.valueOf(second.next().getText()));
+        assertEquals(":=", String.valueOf(second.next().getText()));
+    }
+
+    @Test
+    void testFuzzed() throws LexicalException {
+        final Random random = new Random(5556);
+        for (int i = 0; i < 5000; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int num = random.nextInt(12);
+            for (int j = 0; j < num; j++) {
+                if (random.nextInt(8) == 0) {
+                    sb.append((char) random.nextInt(128));
+                } else {
+                    sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                }
+            }
+            lexAll(sb.toString());
+        }
+    }
+
+    private void lexAll(final String input) throws LexicalException {
+        final ILexer lexer = getLexer(input);
+        try {
+            while (lexer.next().getKind() != IToken.Kind.EOF) {
+                //both lexers are compared token by token
+            }
+        } catch (LexicalException ex) {
+            //expected for invalid input, as long as both lexers failed at the same token
+        }
+    }
+
+    private interface TokenSupplier {
+        IToken get() throws LexicalException;
+    }
+
+    static class DifferentialLexer implements ILexer {
+        private final ILexer expected;
+        private final ILexer actual;
+
+        DifferentialLexer(ILexer expected, ILexer actual) {
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        @Override
+        public IToken next() throws LexicalException {
+            return compare(expected::next, actual::next);
+        }
+
+        @Override
+        public IToken peek() throws LexicalException {
+            return compare(expected::peek, actual::peek);
+        }
+
+        private static IToken compare(final TokenSupplier expected, final TokenSupplier actual) throws LexicalException {
+            IToken expectedToken = null;
+            LexicalException expectedException = null;
+            try {
+                expectedToken = expected.get();
+            } catch (LexicalException ex) {
+                expectedException = ex;
+            }
+            IToken actualToken = null;
+            LexicalException actualException = null;
+            try {
+                actualToken = actual.get();
+            } catch (LexicalException ex) {
+                actualException = ex;
+            }
+            if (expectedException != null) {
+                assertNotNull(actualException, "expected exception " + expectedException);
+                assertEquals(expectedException.getMessage(), actualException.getMessage());
+                throw actualException;
+            }
+            assertNull(actualException, "unexpected exception " + actualException);
+            assertEquals(expectedToken.getKind(), actualToken.getKind());
+            assertArrayEquals(expectedToken.getText(), actualToken.getText());
+            assertEquals(expectedToken.getSourceLocation(), actualToken.getSourceLocation());
+            return actualToken;
+        }
+    }
+}
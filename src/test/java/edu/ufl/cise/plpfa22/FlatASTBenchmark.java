@@ -0,0 +1,69 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import edu.ufl.cise.plpfa22.ast.ASTVisitor;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by parsing a program with many procedures and running the scope, type inference,
+ * constant folding and reachability passes on it, with the object AST of the Parser and with the FlatAST. Bytes are
+ * those allocated by the running thread, as reported by the JVM; the input is lexed once into a TokenStream that is
+ * rewound for every run, so lexing is not counted.
+ * <p>
+ * Not a unit test; run the main method with the test classpath.
+ */
+public class FlatASTBenchmark {
+    private static final int PROCEDURES = 1_000;
+    private static final int WARMUP_RUNS = 10;
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) throws Exception {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final TokenStream tokens = CompilerComponentFactory.getTokenStream(getInput());
+        for (final boolean flat : new boolean[]{false, true}) {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                compile(tokens, flat);
+            }
+            final long bytes = threads.getCurrentThreadAllocatedBytes();
+            final long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                compile(tokens, flat);
+            }
+            final long nanos = System.nanoTime() - start;
+            final long allocated = threads.getCurrentThreadAllocatedBytes() - bytes;
+            System.out.printf("%-7s %10.3f ms/run %10.2f MB/run%n", flat ? "FlatAST" : "Parser", nanos / 1e6 / RUNS, allocated / 1e6 / RUNS);
+        }
+    }
+
+    private static void compile(final TokenStream tokens, final boolean flat) throws PLPException {
+        tokens.seek(0);
+        final ASTVisitor[] passes = {CompilerComponentFactory.getScopeVisitor(), CompilerComponentFactory.getTypeInferenceVisitor(),
+                CompilerComponentFactory.getConstantFoldingVisitor(), CompilerComponentFactory.getReachabilityVisitor()};
+        if (flat) {
+            final FlatAST ast = CompilerComponentFactory.getFlatAST(tokens);
+            for (final ASTVisitor pass : passes) {
+                ast.visit(pass, null);
+            }
+        } else {
+            final ASTNode program = CompilerComponentFactory.getParser(tokens).parse();
+            for (final ASTVisitor pass : passes) {
+                program.visit(pass, null);
+            }
+        }
+    }
+
+    //PROCEDURES procedures with a local variable, each called once from the main block
+    private static String getInput() {
+        final StringBuilder sb = new StringBuilder("CONST k = 3;\nVAR x, y;\n");
+        for (int i = 0; i < PROCEDURES; i++) {
+            sb.append("PROCEDURE p").append(i).append(";\n  VAR a;\n  BEGIN a := x * k + ").append(i)
+                    .append("; IF a > y THEN y := a - 1; WHILE a > 0 DO a := a / 2 END;\n");
+        }
+        sb.append("BEGIN\n  x := 1; y := 0;\n");
+        for (int i = 0; i < PROCEDURES; i++) {
+            sb.append("  CALL p").append(i).append(";\n");
+        }
+        return sb.append("  ! y\nEND\n.").toString();
+    }
+}
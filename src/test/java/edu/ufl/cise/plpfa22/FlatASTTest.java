@@ -0,0 +1,165 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.FlatAST.NodeKind;
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import edu.ufl.cise.plpfa22.ast.Types.Type;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static edu.ufl.cise.plpfa22.IncrementalParserTest.checkSameTree;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the ParserTest, ScopeTest and TypeTest cases on flat ASTs, and checks that the visitors find and generate the
+ * same as on the AST objects of the Parser.
+ */
+class FlatASTTest {
+
+    static FlatAST getFlatAST(String input) throws PLPException {
+        return CompilerComponentFactory.getFlatAST(CompilerComponentFactory.getTokenStream(input));
+    }
+
+    @Nested
+    class FlatParsing extends ParserTest {
+        @Override
+        ASTNode getAST(String input) throws PLPException {
+            return getFlatAST(input).toProgram();
+        }
+    }
+
+    @Nested
+    class FlatScopes extends ScopeTest {
+        @Override
+        ASTNode getDecoratedAST(String input) throws PLPException {
+            FlatAST ast = getFlatAST(input);
+            ast.visit(CompilerComponentFactory.getScopeVisitor(), null);
+            return ast.toProgram();
+        }
+    }
+
+    @Nested
+    class FlatTypes extends TypeTest {
+        FlatAST ast;
+
+        @Override
+        ASTNode getAST(String input) throws PLPException {
+            ast = getFlatAST(input);
+            ast.visit(CompilerComponentFactory.getScopeVisitor(), null);
+            return ast.toProgram();
+        }
+
+        @Override
+        ASTNode checkTypes(ASTNode program) throws PLPException {
+            ast.visit(CompilerComponentFactory.getTypeInferenceVisitor(), null);
+            return ast.toProgram();
+        }
+    }
+
+    @Test
+    void testLayout() throws PLPException {
+        String input = """
+                VAR x;
+                x := 1 + 2 * x
+                .
+                """;
+        FlatAST ast = getFlatAST(input);
+        TokenStream tokens = ast.getTokens();
+        int program = ast.getRoot();
+        assertEquals(NodeKind.PROGRAM, ast.getKind(program));
+        assertEquals(ast.size(), ast.getSubtreeSize(program));
+        int block = ast.getChildren(program)[0];
+        int[] declarationsAndStatement = ast.getChildren(block);
+        assertEquals(2, declarationsAndStatement.length);
+        assertEquals(NodeKind.VAR_DEC, ast.getKind(declarationsAndStatement[0]));
+        int assign = declarationsAndStatement[1];
+        assertEquals(NodeKind.STATEMENT_ASSIGN, ast.getKind(assign));
+        int[] identAndExpression = ast.getChildren(assign);
+        assertEquals(NodeKind.IDENT, ast.getKind(identAndExpression[0]));
+        int sum = identAndExpression[1];
+        assertEquals(NodeKind.EXPRESSION_BINARY, ast.getKind(sum));
+        assertEquals(IToken.Kind.PLUS, tokens.getKind(ast.getExtraToken(sum)));
+        int[] operands = ast.getChildren(sum);
+        assertEquals(NodeKind.EXPRESSION_NUM_LIT, ast.getKind(operands[0]));
+        assertEquals(NodeKind.EXPRESSION_BINARY, ast.getKind(operands[1]));
+        assertEquals(3, ast.getSubtreeSize(operands[1]));
+        assertEquals(7, ast.getFirstToken(operands[1]));
+    }
+
+    @Test
+    void testDecorationsKeptBetweenPasses() throws PLPException {
+        String input = """
+                VAR x;
+                PROCEDURE p;
+                  x := "s";
+                CALL p
+                .
+                """;
+        FlatAST ast = getFlatAST(input);
+        ast.visit(CompilerComponentFactory.getScopeVisitor(), null);
+        ast.visit(CompilerComponentFactory.getTypeInferenceVisitor(), null);
+        int block = ast.getChildren(ast.getRoot())[0];
+        int[] children = ast.getChildren(block);
+        int varDec = children[0];
+        int procDec = children[1];
+        assertEquals(Type.STRING, ast.getType(varDec));
+        assertEquals(Type.PROCEDURE, ast.getType(procDec));
+        int call = children[2];
+        int ident = ast.getChildren(call)[0];
+        assertEquals(procDec, ast.getDec(ident));
+        assertEquals(0, ast.getNest(ident));
+        int assign = ast.getChildren(ast.getChildren(procDec)[0])[0];
+        int assigned = ast.getChildren(assign)[0];
+        assertEquals(varDec, ast.getDec(assigned));
+        assertEquals(1, ast.getNest(assigned));
+    }
+
+    @Test
+    void testSameTreeAndCode() throws Exception {
+        String input = """
+                CONST n = 3, s = "x", b = TRUE;
+                VAR i, t;
+                PROCEDURE count;
+                  VAR j;
+                  PROCEDURE inner;
+                    t := t + s;
+                  PROCEDURE unused;
+                    CALL inner;
+                  BEGIN
+                    j := 0;
+                    WHILE j < n DO BEGIN CALL inner; j := j + 1 END
+                  END;
+                BEGIN
+                  t := "";
+                  IF b = (i # 1) THEN CALL count;
+                  ! t;
+                  ! (1 + 2) * 3 - 4 / 2 % 3 >= i;
+                  ! t + "" + s
+                END
+                .
+                """;
+        ASTNode expected = CompilerComponentFactory.getParser(CompilerComponentFactory.getLexer(input)).parse();
+        FlatAST ast = getFlatAST(input);
+        checkSameTree(expected, ast.toProgram());
+
+        expected.visit(CompilerComponentFactory.getScopeVisitor(), null);
+        expected.visit(CompilerComponentFactory.getTypeInferenceVisitor(), null);
+        expected.visit(CompilerComponentFactory.getConstantFoldingVisitor(), null);
+        expected.visit(CompilerComponentFactory.getReachabilityVisitor(), null);
+        @SuppressWarnings("unchecked")
+        List<GenClass> expectedClasses = (List<GenClass>) expected.visit(CompilerComponentFactory.getCodeGenVisitor("prog", "edu/ufl/cise/plpfa22", ""), null);
+        ast.visit(CompilerComponentFactory.getScopeVisitor(), null);
+        ast.visit(CompilerComponentFactory.getTypeInferenceVisitor(), null);
+        ast.visit(CompilerComponentFactory.getConstantFoldingVisitor(), null);
+        ast.visit(CompilerComponentFactory.getReachabilityVisitor(), null);
+        @SuppressWarnings("unchecked")
+        List<GenClass> classes = (List<GenClass>) ast.visit(CompilerComponentFactory.getCodeGenVisitor("prog", "edu/ufl/cise/plpfa22", ""), null);
+        assertEquals(expectedClasses.size(), classes.size());
+        for (int i = 0; i < classes.size(); i++) {
+            assertEquals(expectedClasses.get(i).className(), classes.get(i).className());
+            assertArrayEquals(expectedClasses.get(i).byteCode(), classes.get(i).byteCode());
+        }
+    }
+}
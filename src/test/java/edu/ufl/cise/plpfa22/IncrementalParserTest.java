@@ -0,0 +1,248 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import edu.ufl.cise.plpfa22.ast.Block;
+import edu.ufl.cise.plpfa22.ast.Program;
+import edu.ufl.cise.plpfa22.ast.StatementAssign;
+import edu.ufl.cise.plpfa22.ast.StatementBlock;
+import edu.ufl.cise.plpfa22.ast.StatementWhile;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the tokens and AST after each edit are the same as those of the edited text lexed and parsed from
+ * scratch, and that nodes outside the edited statement are reused.
+ */
+class IncrementalParserTest {
+
+    static final String PROGRAM = """
+            CONST n = 10, s = "a\\nb";
+            VAR x, y;
+            PROCEDURE p;
+              VAR z;
+              BEGIN
+                z := x + 1;
+                IF z > n THEN ! s
+              END;
+            BEGIN
+              x := 0;
+              WHILE x < n DO
+                BEGIN
+                  CALL p;
+                  x := x + 1
+                END;
+              ? y;
+              ! "done"
+            END
+            .
+            """;
+
+    static final String[] INSERTIONS = {"x", "y1", " ", "\n", "\r\n", ";", "1", "+ 2", "*(3)", "BEGIN ", " END", "\"", "\"q\"",
+            "// c\n", "a := 3;", "! x;", "IF x THEN", "DO", ".", "@", "\\n", "CALL p;"};
+
+    //kinds that can follow a SEMI between statements, but not one ending a declaration
+    static final Set<IToken.Kind> STATEMENT_LIST_KINDS = EnumSet.of(IToken.Kind.IDENT, IToken.Kind.KW_CALL, IToken.Kind.QUESTION,
+            IToken.Kind.BANG, IToken.Kind.KW_IF, IToken.Kind.KW_WHILE, IToken.Kind.KW_END);
+
+    @Test
+    void testEditsInsideStatements() throws PLPException {
+        IncrementalParser parser = CompilerComponentFactory.getIncrementalParser(PROGRAM);
+        Program program = (Program) parser.parse();
+        StatementBlock main = (StatementBlock) program.block.statement;
+        Block procedure = program.block.procedureDecs.get(0).block;
+
+        //x := 0 becomes x := 42 + x
+        String text = parser.getText();
+        int offset = text.indexOf("x := 0") + 5;
+        Program edited = (Program) edit(parser, offset, 1, "42 + x");
+        StatementBlock editedMain = (StatementBlock) edited.block.statement;
+        StatementAssign assign = (StatementAssign) editedMain.statements.get(0);
+        assertEquals("42", String.valueOf(assign.expression.firstToken.getText()));
+        assertNotSame(main.statements.get(0), assign);
+        for (int i = 1; i < main.statements.size(); i++) {
+            assertSame(main.statements.get(i), editedMain.statements.get(i));
+        }
+        assertSame(procedure, edited.block.procedureDecs.get(0).block);
+
+        //a new line inside the loop only moves the tokens after it
+        text = parser.getText();
+        offset = text.indexOf("CALL p;") + 7;
+        StatementWhile loop = (StatementWhile) editedMain.statements.get(1);
+        Program moved = (Program) edit(parser, offset, 0, "\n\n");
+        StatementBlock movedMain = (StatementBlock) moved.block.statement;
+        assertSame(editedMain, movedMain);
+        assertSame(loop, movedMain.statements.get(1));
+        assertEquals(20, movedMain.statements.get(3).firstToken.getSourceLocation().line());
+
+        //a statement added to the loop body only replaces the body
+        text = parser.getText();
+        offset = text.indexOf("CALL p;") + 7;
+        Program added = (Program) edit(parser, offset, 0, " ! x;");
+        StatementBlock addedMain = (StatementBlock) added.block.statement;
+        StatementWhile addedLoop = (StatementWhile) addedMain.statements.get(1);
+        assertNotSame(loop, addedLoop);
+        assertSame(loop.expression, addedLoop.expression);
+        assertEquals(3, ((StatementBlock) addedLoop.statement).statements.size());
+        assertSame(movedMain.statements.get(0), addedMain.statements.get(0));
+        assertSame(movedMain.statements.get(2), addedMain.statements.get(2));
+        assertSame(procedure, added.block.procedureDecs.get(0).block);
+
+        //the procedure body is parsed again on its own
+        text = parser.getText();
+        offset = text.indexOf("z := x + 1") + 9;
+        Program inProcedure = (Program) edit(parser, offset, 1, "2");
+        assertNotSame(procedure, inProcedure.block.procedureDecs.get(0).block);
+        assertSame(addedMain, inProcedure.block.statement);
+    }
+
+    @Test
+    void testEditsThatChangeNoToken() throws PLPException {
+        IncrementalParser parser = CompilerComponentFactory.getIncrementalParser(PROGRAM);
+        ASTNode program = parser.parse();
+        assertSame(program, edit(parser, PROGRAM.indexOf("x := 0;") + 7, 0, "  "));
+        assertSame(program, edit(parser, parser.getText().indexOf("? y"), 0, "// read\n  "));
+        StatementBlock main = (StatementBlock) ((Program) program).block.statement;
+        assertEquals(18, main.statements.get(2).firstToken.getSourceLocation().line());
+    }
+
+    @Test
+    void testEarlierASTsAreInvalidated() throws PLPException {
+        IncrementalParser parser = CompilerComponentFactory.getIncrementalParser(PROGRAM);
+        Program before = (Program) parser.parse();
+        StatementBlock main = (StatementBlock) before.block.statement;
+        IToken input = main.statements.get(2).firstToken;
+        IToken moved = main.statements.get(0).firstToken;
+        IToken kept = before.block.varDecs.get(0).firstToken;
+        assertEquals(new IToken.SourceLocation(17, 3), input.getSourceLocation());
+
+        //the tokens after the edit are moved in place, also in the AST returned before it
+        Program after = (Program) edit(parser, PROGRAM.indexOf("x := 0;"), 0, "x := 1;\n  ");
+        assertNotSame(before, after);
+        assertSame(input, ((StatementBlock) after.block.statement).statements.get(3).firstToken);
+        assertEquals(new IToken.SourceLocation(18, 3), input.getSourceLocation());
+        assertEquals(new IToken.SourceLocation(12, 3), moved.getSourceLocation());
+        assertEquals(new IToken.SourceLocation(3, 5), kept.getSourceLocation());
+    }
+
+    @Test
+    void testErrorsAndRecovery() throws PLPException {
+        IncrementalParser parser = CompilerComponentFactory.getIncrementalParser(PROGRAM);
+        parser.parse();
+        int offset = PROGRAM.indexOf("x := 0");
+        assertThrows(SyntaxException.class, () -> parser.edit(offset, 0, "BEGIN "));
+        edit(parser, offset, 6, "");
+        assertThrows(LexicalException.class, () -> parser.edit(offset, 0, "@"));
+        edit(parser, offset, 1, "");
+        assertThrows(LexicalException.class, () -> parser.edit(PROGRAM.length(), 0, "\""));
+        edit(parser, PROGRAM.length(), 1, "");
+        assertThrows(IndexOutOfBoundsException.class, () -> parser.edit(PROGRAM.length(), 1, ""));
+    }
+
+    @Test
+    void testRandomEdits() throws PLPException {
+        Random random = new Random(1515);
+        for (int run = 0; run < 20; run++) {
+            IncrementalParser parser = CompilerComponentFactory.getIncrementalParser(PROGRAM);
+            parser.parse();
+            for (int i = 0; i < 100; i++) {
+                String text = parser.getText();
+                int offset = random.nextInt(text.length() + 1);
+                int deleted = Math.min(random.nextInt(4), text.length() - offset);
+                String inserted = random.nextInt(3) == 0 ? "" : INSERTIONS[random.nextInt(INSERTIONS.length)];
+                if (random.nextInt(4) == 0 && deleted > 0) {
+                    //undoes a part of the edits so far, so that the program is valid again once in a while
+                    inserted = PROGRAM.substring(Math.min(offset, PROGRAM.length()), Math.min(offset + deleted, PROGRAM.length()));
+                }
+                try {
+                    edit(parser, offset, deleted, inserted);
+                } catch (PLPException ex) {
+                    String expectedText = text.substring(0, offset) + inserted + text.substring(offset + deleted);
+                    assertThrows(ex.getClass(), () -> CompilerComponentFactory.getParser(CompilerComponentFactory.getLexer(expectedText)).parse());
+                    checkTokens(expectedText, parser.getTokenStream());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRandomTokenEdits() throws PLPException {
+        Random random = new Random(1516);
+        String[] layouts = {" ", "\n", "\r\n  ", "// c\n", "\n\n    "};
+        IncrementalParser parser = CompilerComponentFactory.getIncrementalParser(PROGRAM);
+        parser.parse();
+        for (int i = 0; i < 1000; i++) {
+            TokenStream stream = parser.getTokenStream();
+            int entry = random.nextInt(stream.size() - 2);
+            int start = stream.getStart(entry);
+            //edits that mostly keep the program valid, so that only a part of it is parsed again
+            switch (stream.getKind(entry)) {
+                case NUM_LIT -> edit(parser, start, stream.getLength(entry), String.valueOf(random.nextInt(1000)));
+                case SEMI -> {
+                    if (stream.getKind(entry + 1) == IToken.Kind.BANG && random.nextBoolean()) {
+                        edit(parser, start, stream.getStart(entry + 2) + stream.getLength(entry + 2) - start, "");
+                    } else if (STATEMENT_LIST_KINDS.contains(stream.getKind(entry + 1))) {
+                        edit(parser, start + 1, 0, " ! " + random.nextInt(10) + ";");
+                    }
+                }
+                default -> edit(parser, start, 0, layouts[random.nextInt(layouts.length)]);
+            }
+        }
+    }
+
+    //applies the edit and checks the result against lexing and parsing the new text from scratch
+    static ASTNode edit(IncrementalParser parser, int offset, int deletedLength, String insertedText) throws PLPException {
+        String text = parser.getText();
+        String expectedText = text.substring(0, offset) + insertedText + text.substring(offset + deletedLength);
+        ASTNode ast = parser.edit(offset, deletedLength, insertedText);
+        assertEquals(expectedText, parser.getText());
+        checkTokens(expectedText, parser.getTokenStream());
+        checkSameTree(CompilerComponentFactory.getParser(CompilerComponentFactory.getLexer(expectedText)).parse(), ast);
+        return ast;
+    }
+
+    static void checkTokens(String text, TokenStream actual) {
+        TokenStream expected = CompilerComponentFactory.getTokenStream(text);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getKind(i), actual.getKind(i));
+            assertEquals(expected.getStart(i), actual.getStart(i));
+            assertEquals(expected.getLength(i), actual.getLength(i));
+            assertEquals(expected.getLine(i), actual.getLine(i));
+            assertEquals(expected.getColumn(i), actual.getColumn(i));
+        }
+    }
+
+    //compares the public fields of both trees, and tokens by kind, text and location
+    static void checkSameTree(Object expected, Object actual) {
+        if (expected instanceof ASTNode) {
+            assertEquals(expected.getClass(), actual.getClass());
+            for (Field field : expected.getClass().getFields()) {
+                try {
+                    checkSameTree(field.get(expected), field.get(actual));
+                } catch (IllegalAccessException ex) {
+                    throw new AssertionError(ex);
+                }
+            }
+        } else if (expected instanceof List<?> expectedList) {
+            List<?> actualList = (List<?>) actual;
+            assertEquals(expectedList.size(), actualList.size());
+            for (int i = 0; i < expectedList.size(); i++) {
+                checkSameTree(expectedList.get(i), actualList.get(i));
+            }
+        } else if (expected instanceof IToken expectedToken) {
+            IToken actualToken = (IToken) actual;
+            assertEquals(expectedToken.getKind(), actualToken.getKind());
+            assertArrayEquals(expectedToken.getText(), actualToken.getText());
+            assertEquals(expectedToken.getSourceLocation(), actualToken.getSourceLocation());
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+}
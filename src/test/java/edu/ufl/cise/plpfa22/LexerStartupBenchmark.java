@@ -0,0 +1,55 @@
+package edu.ufl.cise.plpfa22;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares the cost of getting a lexer when the language automaton is rebuilt for every compile against the cached
+ * automaton returned by {@link CompilerComponentFactory#getLexer(String)}.
+ * <p>
+ * Not a unit test; run the main method with the test classpath.
+ */
+public class LexerStartupBenchmark {
+    private static final String INPUT = """
+            VAR x;
+            BEGIN
+            x := 1;
+            ! x
+            END
+            .
+            """;
+    private static final int COMPILES = 20;
+
+    public static void main(String[] args) throws Exception {
+        //warm up both paths
+        lexAll(new Lexer(INPUT + "\0", CompilerComponentFactory.buildLanguageFSA()));
+        lexAll(CompilerComponentFactory.getLexer(INPUT));
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < COMPILES; i++) {
+            lexAll(new Lexer(INPUT + "\0", CompilerComponentFactory.buildLanguageFSA()));
+        }
+        report("automaton built per lexer", System.nanoTime() - start, allocatedBytes() - bytes);
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < COMPILES; i++) {
+            lexAll(CompilerComponentFactory.getLexer(INPUT));
+        }
+        report("shared automaton", System.nanoTime() - start, allocatedBytes() - bytes);
+    }
+
+    private static void lexAll(final ILexer lexer) throws LexicalException {
+        while (lexer.next().getKind() != IToken.Kind.EOF) {
+            //consume
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static void report(final String name, final long nanos, final long bytes) {
+        System.out.printf("%-28s %10.3f ms/compile %12d bytes/compile%n", name, nanos / 1e6 / COMPILES, bytes / COMPILES);
+    }
+}
@@ -611,4 +611,64 @@ class LexerTest {
         checkToken(lexer.peek(), KW_CALL, 2, 1);
         checkToken(lexer.next(), KW_CALL, 2, 1);
     }
+
+    @Test
+    public void testPeekReturnsSameToken() throws LexicalException {
+        String input = """
+                x := 1
+                """;
+        show(input);
+        ILexer lexer = getLexer(input);
+        IToken peeked = lexer.peek();
+        assertSame(peeked, lexer.peek());
+        assertSame(peeked, lexer.next());
+        checkToken(lexer.next(), ASSIGN, 1, 3);
+    }
+
+    @Test
+    public void testLookahead() throws LexicalException {
+        String input = """
+                BEGIN x := "a"; ! 42 END
+                .
+                """;
+        show(input);
+        LookaheadLexer lexer = new LookaheadLexer(getLexer(input), 1);
+        checkToken(lexer.peek(6), NUM_LIT, 1, 19);
+        checkIdent(lexer.peek(1), "x", 1, 7);
+        checkToken(lexer.peek(), KW_BEGIN, 1, 1);
+        checkToken(lexer.next(), KW_BEGIN, 1, 1);
+        checkToken(lexer.peek(6), KW_END, 1, 22);
+        checkToken(lexer.peek(7), DOT, 2, 1);
+        checkEOF(lexer.peek(8));
+        checkIdent(lexer.next(), "x", 1, 7);
+        checkToken(lexer.next(), ASSIGN, 1, 9);
+        checkString(lexer.next(), "a", 1, 12);
+    }
+
+    @Test
+    public void testSharedSpellings() throws LexicalException {
+        String input = """
+                abc := abc + 1;
+                abc := 2;
+                """;
+        show(input);
+        ILexer lexer = getLexer(input);
+        IToken first = lexer.next();
+        IToken assign = lexer.next();
+        IToken second = lexer.next();
+        checkIdent(first, "abc", 1, 1);
+        checkIdent(second, "abc", 1, 8);
+        //identifiers are interned
+        assertSame(first.getStringValue(), second.getStringValue());
+        for (int i = 0; i < 3; i++) {
+            lexer.next();
+        }
+        IToken third = lexer.next();
+        checkIdent(third, "abc", 2, 1);
+        assertSame(first.getStringValue(), third.getStringValue());
+        //the text of a fixed spelling is equal, but each token has its own copy that a caller may change
+        IToken secondAssign = lexer.next();
+        assertArrayEquals(assign.getText(), secondAssign.getText());
+        assertNotSame(assign.getText(), secondAssign.getText());
+    }
 }
@@ -0,0 +1,56 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.DynamicClassLoader;
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Measures a numeric WHILE loop of ITERATIONS iterations with its variables in fields and with the variables the
+ * LocalVariableVisitor finds local kept in JVM locals, for each code generation mode.
+ * <p>
+ * Not a unit test; run the main method with the test classpath.
+ */
+public class LocalVariableBenchmark {
+    private static final int ITERATIONS = 500_000_000;
+    private static final int RUNS = 3;
+
+    static final String PROGRAM = """
+            VAR i, sum;
+            BEGIN
+              i := 0; sum := 0;
+              WHILE i < %d DO BEGIN sum := sum + i %% 7 * 3; i := i + 1 END;
+              ! sum
+            END
+            .
+            """.formatted(ITERATIONS);
+
+    public static void main(String[] args) throws Exception {
+        for (final CodeGenMode mode : CodeGenMode.values()) {
+            for (final boolean locals : new boolean[]{false, true}) {
+                final Method main = compile(mode, locals).getMethod("main", String[].class);
+                for (int run = 0; run < RUNS; run++) {
+                    final long start = System.nanoTime();
+                    main.invoke(null, (Object) new String[0]);
+                    final long nanos = System.nanoTime() - start;
+                    System.out.printf("%-14s %-7s %10.1f ms %8.3f ns/iteration%n", mode, locals ? "locals" : "fields",
+                            nanos / 1e6, (double) nanos / ITERATIONS);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<?> compile(final CodeGenMode mode, final boolean locals) throws PLPException {
+        final ASTNode program = CompilerComponentFactory.getParser(CompilerComponentFactory.getLexer(PROGRAM)).parse();
+        program.visit(CompilerComponentFactory.getScopeVisitor(), null);
+        program.visit(CompilerComponentFactory.getTypeInferenceVisitor(), null);
+        if (locals) {
+            program.visit(CompilerComponentFactory.getLocalVariableVisitor(), null);
+        }
+        final List<GenClass> classes = (List<GenClass>) program.visit(CompilerComponentFactory.getCodeGenVisitor("prog", "edu/ufl/cise/plpfa22", "", mode), null);
+        return new DynamicClassLoader().define(classes);
+    }
+}
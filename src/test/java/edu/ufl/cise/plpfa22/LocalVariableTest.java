@@ -0,0 +1,134 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.DynamicClassLoader;
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.ast.Program;
+import edu.ufl.cise.plpfa22.ast.VarDec;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static edu.ufl.cise.plpfa22.ConstantFoldingTest.run;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks which variables the LocalVariableVisitor marks local, and that the programs with those variables in JVM locals
+ * print the same as with fields, in both code generation modes.
+ */
+class LocalVariableTest {
+
+    static final String PROGRAM = """
+            VAR i, sum, shared, s;
+            PROCEDURE p;
+              VAR j, k;
+              PROCEDURE q;
+                shared := shared + k;
+              BEGIN
+                j := 0;
+                WHILE j < 3 DO BEGIN k := k + j; j := j + 1 END;
+                CALL q;
+                ! j
+              END;
+            BEGIN
+              i := 0; sum := 0; shared := 0; s := "";
+              ! s = "";
+              WHILE i < 10 DO BEGIN sum := sum + i; s := s + "x"; i := i + 1 END;
+              CALL p; CALL p;
+              ! sum; ! s; ! shared
+            END
+            .
+            """;
+
+    static Program analyze(String input) throws PLPException {
+        Program program = ConstantFoldingTest.compile(input, false);
+        program.visit(CompilerComponentFactory.getLocalVariableVisitor(), null);
+        return program;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<GenClass> compile(String input, CodeGenMode mode, boolean locals) throws PLPException {
+        Program program = locals ? analyze(input) : ConstantFoldingTest.compile(input, false);
+        return (List<GenClass>) program.visit(CompilerComponentFactory.getCodeGenVisitor("prog", "edu/ufl/cise/plpfa22", "", mode), null);
+    }
+
+    static Set<String> fieldNames(Class<?> c) {
+        return Arrays.stream(c.getDeclaredFields()).map(Field::getName).filter(name -> !name.contains("$"))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void testLocalVariables() throws PLPException {
+        Program program = analyze(PROGRAM);
+        List<VarDec> main = program.block.varDecs;
+        assertTrue(main.get(0).isLocal());
+        assertTrue(main.get(1).isLocal());
+        assertFalse(main.get(2).isLocal());
+        assertTrue(main.get(3).isLocal());
+        List<VarDec> p = program.block.procedureDecs.get(0).block.varDecs;
+        assertTrue(p.get(0).isLocal());
+        assertFalse(p.get(1).isLocal());
+    }
+
+    @Test
+    void testSameOutput() throws Exception {
+        for (CodeGenMode mode : CodeGenMode.values()) {
+            String output = run(compile(PROGRAM, mode, true));
+            assertEquals(run(compile(PROGRAM, mode, false)), output);
+            assertEquals("true\n3\n3\n45\nxxxxxxxxxx\n6\n", output.replace("\r\n", "\n"));
+        }
+    }
+
+    @Test
+    void testOnlySharedVariablesAreFields() throws Exception {
+        DynamicClassLoader loader = new DynamicClassLoader();
+        loader.define(compile(PROGRAM, CodeGenMode.NESTED_CLASSES, true));
+        assertEquals(Set.of("shared"), fieldNames(loader.loadClass("edu.ufl.cise.plpfa22.prog")));
+        assertEquals(Set.of("k"), fieldNames(loader.loadClass("edu.ufl.cise.plpfa22.prog$p")));
+    }
+
+    @Test
+    void testRecursion() throws Exception {
+        String input = """
+                VAR n;
+                PROCEDURE rec;
+                  VAR mine;
+                  BEGIN
+                    ! mine;
+                    mine := n;
+                    n := n - 1;
+                    IF n > 0 THEN CALL rec;
+                    ! mine
+                  END;
+                BEGIN n := 3; CALL rec END
+                .
+                """;
+        //each activation has its own local
+        for (CodeGenMode mode : CodeGenMode.values()) {
+            assertEquals("0\n0\n0\n1\n2\n3\n", run(compile(input, mode, true)).replace("\r\n", "\n"));
+        }
+    }
+
+    @Test
+    void testInput() throws Exception {
+        String input = """
+                VAR a;
+                BEGIN ? a; ! a * 2 END
+                .
+                """;
+        InputStream in = System.in;
+        try {
+            for (CodeGenMode mode : CodeGenMode.values()) {
+                System.setIn(new ByteArrayInputStream("21\n".getBytes()));
+                assertEquals("42\n", run(compile(input, mode, true)).replace("\r\n", "\n"));
+            }
+        } finally {
+            System.setIn(in);
+        }
+    }
+}
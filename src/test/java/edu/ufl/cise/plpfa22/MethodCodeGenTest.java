@@ -0,0 +1,207 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import static edu.ufl.cise.plpfa22.ConstantFoldingTest.run;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that programs compiled with procedures as methods print the same as with a class per procedure, in a single
+ * class.
+ */
+class MethodCodeGenTest {
+
+    @SuppressWarnings("unchecked")
+    static List<GenClass> compile(String input, CodeGenMode mode, boolean optimize) throws PLPException {
+        ASTNode program = CompilerComponentFactory.getParser(CompilerComponentFactory.getLexer(input)).parse();
+        program.visit(CompilerComponentFactory.getScopeVisitor(), null);
+        program.visit(CompilerComponentFactory.getTypeInferenceVisitor(), null);
+        if (optimize) {
+            program.visit(CompilerComponentFactory.getConstantFoldingVisitor(), null);
+            program.visit(CompilerComponentFactory.getReachabilityVisitor(), null);
+        }
+        return (List<GenClass>) program.visit(CompilerComponentFactory.getCodeGenVisitor("prog", "edu/ufl/cise/plpfa22", "", mode), null);
+    }
+
+    //output with procedures as methods, checked against the output with a class per procedure
+    static String runBoth(String input) throws Exception {
+        List<GenClass> classes = compile(input, CodeGenMode.METHODS, false);
+        assertEquals(1, classes.size());
+        String output = run(classes);
+        assertEquals(run(compile(input, CodeGenMode.NESTED_CLASSES, false)), output);
+        assertEquals(run(compile(input, CodeGenMode.CACHED_NESTED_CLASSES, false)), output);
+        assertEquals(output, run(compile(input, CodeGenMode.METHODS, true)));
+        return output.replace("\r\n", "\n");
+    }
+
+    @Test
+    void testBlocksAndExpressions() throws Exception {
+        String input = """
+                CONST n = 3, greeting = "hi";
+                VAR i, s, b;
+                BEGIN
+                  i := 0; s := ""; b := FALSE;
+                  WHILE i < n DO BEGIN s := s + greeting; i := i + 1 END;
+                  b := s = "hihihi";
+                  ! s; ! i * 2 - 1; ! b
+                END
+                .
+                """;
+        assertEquals("hihihi\n5\ntrue\n", runBoth(input));
+    }
+
+    @Test
+    void testNestedProcedures() throws Exception {
+        String input = """
+                VAR total;
+                PROCEDURE outer;
+                  CONST step = 2;
+                  VAR x;
+                  PROCEDURE inner;
+                    VAR y;
+                    BEGIN
+                      y := x * step;
+                      total := total + y
+                    END;
+                  BEGIN
+                    x := 5;
+                    CALL inner;
+                    x := 7;
+                    CALL inner
+                  END;
+                BEGIN
+                  total := 0;
+                  CALL outer;
+                  ! total
+                END
+                .
+                """;
+        assertEquals("24\n", runBoth(input));
+    }
+
+    @Test
+    void testVariablesOfEachActivation() throws Exception {
+        String input = """
+                VAR n, out;
+                PROCEDURE rec;
+                  VAR local, name;
+                  PROCEDURE show;
+                    BEGIN
+                      out := out * 10 + local;
+                      ! name
+                    END;
+                  BEGIN
+                    ! local;
+                    local := n;
+                    name := "a";
+                    n := n - 1;
+                    IF n > 0 THEN CALL rec;
+                    name := name + "b";
+                    CALL show
+                  END;
+                BEGIN
+                  n := 3; out := 0;
+                  CALL rec;
+                  ! out
+                END
+                .
+                """;
+        //each activation starts with its own variables, which a nested procedure sees after the inner calls returned
+        assertEquals("0\n0\n0\nab\nab\nab\n123\n", runBoth(input));
+    }
+
+    @Test
+    void testMutualRecursionAndSameNames() throws Exception {
+        String input = """
+                VAR n, x;
+                PROCEDURE p;
+                  VAR x;
+                  PROCEDURE q;
+                    VAR x;
+                    BEGIN x := "q"; ! x END;
+                  BEGIN x := 1; CALL q; ! x END;
+                PROCEDURE even;
+                  IF n > 0 THEN BEGIN n := n - 1; CALL odd END;
+                PROCEDURE odd;
+                  IF n > 0 THEN BEGIN n := n - 1; CALL even END;
+                BEGIN
+                  x := TRUE;
+                  CALL p;
+                  ! x;
+                  n := 7;
+                  CALL even;
+                  ! n
+                END
+                .
+                """;
+        assertEquals("q\n1\ntrue\n0\n", runBoth(input));
+    }
+
+    @Test
+    void testNamesWithDollar() throws Exception {
+        //identifiers may contain $, so a name made of one is not taken for a path
+        String variables = """
+                VAR $p$x;
+                PROCEDURE p;
+                  VAR x;
+                  BEGIN x := 1 END;
+                BEGIN
+                  $p$x := 2;
+                  CALL p;
+                  ! $p$x
+                END
+                .
+                """;
+        assertEquals("2\n", runBoth(variables));
+        String procedures = """
+                VAR s;
+                PROCEDURE p;
+                  PROCEDURE q;
+                    s := s + "q";
+                  CALL q;
+                PROCEDURE p$q;
+                  s := s + "p$q";
+                BEGIN
+                  s := "";
+                  CALL p;
+                  CALL p$q;
+                  ! s
+                END
+                .
+                """;
+        //a class per procedure names the class of q in p prog$p$q too, so only methods are run
+        for (boolean optimize : new boolean[]{false, true}) {
+            assertEquals("qp$q\n", run(compile(procedures, CodeGenMode.METHODS, optimize)).replace("\r\n", "\n"));
+        }
+    }
+
+    @Test
+    void testInput() throws Exception {
+        String input = """
+                VAR a;
+                PROCEDURE read;
+                  VAR b;
+                  BEGIN ? b; a := a + b END;
+                BEGIN
+                  a := 3;
+                  CALL read;
+                  ! a
+                END
+                .
+                """;
+        InputStream in = System.in;
+        try {
+            System.setIn(new ByteArrayInputStream("4\n".getBytes()));
+            List<GenClass> classes = compile(input, CodeGenMode.METHODS, true);
+            assertEquals("7\n", run(classes).replace("\r\n", "\n"));
+        } finally {
+            System.setIn(in);
+        }
+    }
+}
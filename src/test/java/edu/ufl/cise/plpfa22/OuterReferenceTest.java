@@ -0,0 +1,96 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.DynamicClassLoader;
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static edu.ufl.cise.plpfa22.ConstantFoldingTest.run;
+import static edu.ufl.cise.plpfa22.MethodCodeGenTest.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the procedure classes keep only the this$ fields of the enclosing blocks they use, and that deeply nested
+ * procedures reach the variables of every level.
+ */
+class OuterReferenceTest {
+
+    static final String PROGRAM = """
+            CONST k = 100;
+            VAR a;
+            PROCEDURE p1;
+              VAR b;
+              PROCEDURE p2;
+                VAR c;
+                PROCEDURE p3;
+                  VAR d;
+                  PROCEDURE p4;
+                    BEGIN
+                      a := a + k;
+                      b := b + 1;
+                      c := c + 1;
+                      ! a + c
+                    END;
+                  BEGIN d := 1; CALL p4 END;
+                PROCEDURE unrelated;
+                  ! "u";
+                BEGIN c := 10; CALL p3; CALL unrelated; ! c END;
+              BEGIN b := 0; CALL p2; CALL p2; ! b END;
+            BEGIN
+              a := 1;
+              CALL p1;
+              ! a
+            END
+            .
+            """;
+
+    static Set<String> outerFields(Class<?> c) {
+        return Arrays.stream(c.getDeclaredFields()).map(Field::getName).filter(name -> name.startsWith("this$"))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    @Test
+    void testDeepNesting() throws Exception {
+        String output = run(compile(PROGRAM, CodeGenMode.NESTED_CLASSES, false));
+        assertEquals(run(compile(PROGRAM, CodeGenMode.METHODS, false)), output);
+        assertEquals("112\nu\n11\n212\nu\n11\n2\n201\n", output.replace("\r\n", "\n"));
+    }
+
+    @Test
+    void testOnlyUsedLevels() throws Exception {
+        List<GenClass> classes = compile(PROGRAM, CodeGenMode.NESTED_CLASSES, false);
+        DynamicClassLoader loader = new DynamicClassLoader();
+        loader.define(classes);
+        String prefix = "edu.ufl.cise.plpfa22.prog";
+        //p4 uses a, b and c at levels 0 to 2, and its parent p3 keeps them for it
+        assertEquals(Set.of("this$0", "this$1", "this$2"), outerFields(loader.loadClass(prefix + "$p1$p2$p3$p4")));
+        assertEquals(Set.of("this$0", "this$1", "this$2"), outerFields(loader.loadClass(prefix + "$p1$p2$p3")));
+        //unrelated uses no variable
+        assertEquals(Set.of(), outerFields(loader.loadClass(prefix + "$p1$p2$unrelated")));
+        //p2 passes itself to p3 as the object of level 2
+        assertEquals(Set.of("this$0", "this$1"), outerFields(loader.loadClass(prefix + "$p1$p2")));
+        assertEquals(Set.of("this$0"), outerFields(loader.loadClass(prefix + "$p1")));
+    }
+
+    @Test
+    void testFoldedConstantsNeedNoOuterObject() throws Exception {
+        String input = """
+                CONST k = 3;
+                PROCEDURE p;
+                  ! k * 2;
+                CALL p
+                .
+                """;
+        List<GenClass> classes = compile(input, CodeGenMode.NESTED_CLASSES, true);
+        assertEquals("6\n", run(classes).replace("\r\n", "\n"));
+        DynamicClassLoader loader = new DynamicClassLoader();
+        loader.define(classes);
+        assertEquals(Set.of(), outerFields(loader.loadClass("edu.ufl.cise.plpfa22.prog$p")));
+    }
+}
@@ -0,0 +1,369 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.DynamicClassLoader;
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.ast.Program;
+import edu.ufl.cise.plpfa22.ast.VarDec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static edu.ufl.cise.plpfa22.ConstantFoldingTest.run;
+import static edu.ufl.cise.plpfa22.MethodCodeGenTest.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the input, output and string comparison methods of PLPRuntime, that the ? statements of a program read from
+ * the same input, and when the output of the ! statements is written.
+ */
+class PLPRuntimeTest {
+
+    InputStream in;
+    PrintStream out;
+    ByteArrayOutputStream bytes;
+
+    @BeforeEach
+    void saveStreams() {
+        in = System.in;
+        out = System.out;
+        bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes));
+    }
+
+    @AfterEach
+    void restoreStreams() {
+        PLPRuntime.setFlushSize(PLPRuntime.DEFAULT_FLUSH_SIZE);
+        PLPRuntime.setFlushPolicy(PLPRuntime.DEFAULT_FLUSH_POLICY);
+        System.setIn(in);
+        System.setOut(out);
+    }
+
+    static void setInput(String input) {
+        System.setIn(new ByteArrayInputStream(input.getBytes()));
+    }
+
+    String output() {
+        return bytes.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    static void runMain(List<GenClass> classes) throws Exception {
+        Class<?> mainClass = new DynamicClassLoader().define(classes);
+        mainClass.getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+    }
+
+    @Test
+    void testNumbersAndLines() {
+        setInput("12 -3\t+4\n 5  \r\nhello world\r\nTRUE\nFALSE\n-2147483648\nlast");
+        assertEquals(12, PLPRuntime.readNumber());
+        assertEquals(-3, PLPRuntime.readNumber());
+        assertEquals(4, PLPRuntime.readNumber());
+        //the end of the line of a number is skipped
+        assertEquals(5, PLPRuntime.readNumber());
+        assertEquals("hello world", PLPRuntime.readString());
+        assertTrue(PLPRuntime.readBoolean());
+        assertFalse(PLPRuntime.readBoolean());
+        assertEquals(Integer.MIN_VALUE, PLPRuntime.readNumber());
+        assertEquals("last", PLPRuntime.readString());
+        assertThrows(NoSuchElementException.class, PLPRuntime::readString);
+        assertThrows(NoSuchElementException.class, PLPRuntime::readNumber);
+    }
+
+    @Test
+    void testEmptyLines() {
+        setInput("\n\nx\n");
+        assertEquals("", PLPRuntime.readString());
+        assertEquals("", PLPRuntime.readString());
+        assertEquals("x", PLPRuntime.readString());
+    }
+
+    @Test
+    void testBadNumbers() {
+        setInput("12a");
+        assertThrows(InputMismatchException.class, PLPRuntime::readNumber);
+        setInput("2147483648");
+        assertThrows(InputMismatchException.class, PLPRuntime::readNumber);
+        setInput("-");
+        assertThrows(InputMismatchException.class, PLPRuntime::readNumber);
+    }
+
+    @Test
+    void testLinesAcrossBlocks() {
+        String longLine = "ab".repeat(PLPRuntime.BUFFER_SIZE);
+        setInput("x".repeat(PLPRuntime.BUFFER_SIZE - 1) + "\r\n" + longLine + "\n7");
+        assertEquals("x".repeat(PLPRuntime.BUFFER_SIZE - 1), PLPRuntime.readString());
+        assertEquals(longLine, PLPRuntime.readString());
+        assertEquals(7, PLPRuntime.readNumber());
+    }
+
+    @Test
+    void testNewInputStream() {
+        setInput("1\n2\n");
+        assertEquals(1, PLPRuntime.readNumber());
+        setInput("3\n");
+        assertEquals(3, PLPRuntime.readNumber());
+    }
+
+    @Test
+    void testOutputFormat() {
+        PLPRuntime.println(0);
+        PLPRuntime.println(-45);
+        PLPRuntime.println(Integer.MIN_VALUE);
+        PLPRuntime.println(Integer.MAX_VALUE);
+        PLPRuntime.println(true);
+        PLPRuntime.println(false);
+        PLPRuntime.println("abc");
+        PLPRuntime.println("");
+        PLPRuntime.println(null);
+        String longString = "xy".repeat(PLPRuntime.DEFAULT_FLUSH_SIZE);
+        PLPRuntime.println(longString);
+        PLPRuntime.flush();
+        assertEquals("0\n-45\n-2147483648\n2147483647\ntrue\nfalse\nabc\n\nnull\n" + longString + "\n", output());
+    }
+
+    @Test
+    void testFlushSize() {
+        PLPRuntime.setFlushPolicy(FlushPolicy.EVERY_N);
+        PLPRuntime.println(1);
+        assertEquals("", output());
+        PLPRuntime.setFlushSize(0);
+        assertEquals("1\n", output());
+        PLPRuntime.println(2);
+        assertEquals("1\n2\n", output());
+        PLPRuntime.setFlushSize(10);
+        for (int i = 0; i < 5; i++) {
+            PLPRuntime.println("ab");
+        }
+        //written each time the buffer held 10 chars
+        assertTrue(output().startsWith("1\n2\nab\nab\nab\n"));
+        assertNotEquals("1\n2\n" + "ab\n".repeat(5), output());
+        PLPRuntime.flush();
+        assertEquals("1\n2\n" + "ab\n".repeat(5), output());
+    }
+
+    @Test
+    void testLargeFlushSize() {
+        //the buffer does not grow with the flush size, and is written in chunks when full
+        PLPRuntime.setFlushPolicy(FlushPolicy.EVERY_N);
+        PLPRuntime.setFlushSize(Integer.MAX_VALUE);
+        PLPRuntime.println("x");
+        assertEquals("", output());
+        String longString = "y".repeat(3 * PLPRuntime.OUTPUT_BUFFER_SIZE);
+        PLPRuntime.println(longString);
+        assertTrue(output().length() >= 2 * PLPRuntime.OUTPUT_BUFFER_SIZE);
+        assertTrue(output().length() <= "x\n".length() + longString.length());
+        PLPRuntime.flush();
+        assertEquals("x\n" + longString + "\n", output());
+    }
+
+    @Test
+    void testFlushOnExitOnly() throws Exception {
+        PLPRuntime.setFlushPolicy(FlushPolicy.EXIT);
+        PLPRuntime.println("prompt");
+        setInput("5\n");
+        assertEquals(5, PLPRuntime.readNumber());
+        assertEquals("", output());
+        PLPRuntime.flush();
+        assertEquals("prompt\n", output());
+        bytes.reset();
+        String input = """
+                VAR n;
+                BEGIN
+                  ! "number?";
+                  ? n;
+                  ! n + 1
+                END
+                .
+                """;
+        String[] seen = new String[1];
+        System.setIn(new InputStream() {
+            final InputStream numbers = new ByteArrayInputStream("41\n".getBytes());
+
+            @Override
+            public int read() throws IOException {
+                return numbers.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (seen[0] == null) {
+                    seen[0] = output();
+                }
+                return numbers.read(b, off, len);
+            }
+        });
+        //the end of the program still writes the output
+        runMain(compile(input, CodeGenMode.METHODS, false));
+        assertEquals("", seen[0]);
+        assertEquals("number?\n42\n", output());
+    }
+
+    @Test
+    void testOutputBeforeInput() throws Exception {
+        String input = """
+                VAR n;
+                BEGIN
+                  n := 0;
+                  ! "number?";
+                  ? n;
+                  ! n + 1
+                END
+                .
+                """;
+        String[] seen = new String[1];
+        System.setIn(new InputStream() {
+            final InputStream numbers = new ByteArrayInputStream("41\n".getBytes());
+
+            @Override
+            public int read() throws IOException {
+                return numbers.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (seen[0] == null) {
+                    seen[0] = output();
+                }
+                return numbers.read(b, off, len);
+            }
+        });
+        runMain(compile(input, CodeGenMode.NESTED_CLASSES, false));
+        assertEquals("number?\n", seen[0]);
+        assertEquals("number?\n42\n", output());
+    }
+
+    @Test
+    void testOutputOfFailedProgram() throws Exception {
+        String input = """
+                VAR n;
+                BEGIN
+                  n := 0;
+                  ! "before";
+                  ! 1 / n
+                END
+                .
+                """;
+        List<GenClass> classes = compile(input, CodeGenMode.METHODS, false);
+        InvocationTargetException e = assertThrows(InvocationTargetException.class, () -> runMain(classes));
+        assertInstanceOf(ArithmeticException.class, e.getCause());
+        assertEquals("before\n", output());
+    }
+
+    @Test
+    void testOutputOfRunnable() throws Exception {
+        String input = """
+                VAR n;
+                BEGIN
+                  n := 0;
+                  ! "before";
+                  IF n # 0 THEN ! 1 / n
+                END
+                .
+                """;
+        //the program is run without main, which would flush the output too
+        for (CodeGenMode mode : CodeGenMode.values()) {
+            bytes.reset();
+            runRunnable(compile(input, mode, false));
+            assertEquals("before\n", output(), mode.toString());
+            bytes.reset();
+            runRunnable(compile(". ", mode, false));
+            assertEquals("", output(), mode.toString());
+            bytes.reset();
+            List<GenClass> failing = compile(input.replace("IF n # 0 THEN ", ""), mode, false);
+            assertThrows(ArithmeticException.class, () -> runRunnable(failing));
+            assertEquals("before\n", output(), mode.toString());
+        }
+    }
+
+    static void runRunnable(List<GenClass> classes) throws Exception {
+        Class<?> mainClass = new DynamicClassLoader().define(classes);
+        ((Runnable) mainClass.getConstructor().newInstance()).run();
+    }
+
+    @Test
+    void testStringComparisons() {
+        String[][] pairs = {{"a", "ab"}, {"ab", "ab"}, {"ab", "a"}, {"b", "ab"}, {"ab", "b"}, {"", "x"}, {"", ""}, {"ab", "ba"}};
+        for (String[] pair : pairs) {
+            String a = pair[0], b = pair[1];
+            assertEquals(b.startsWith(a) && !a.equals(b), PLPRuntime.stringLT(a, b), a + " < " + b);
+            assertEquals(b.startsWith(a), PLPRuntime.stringLE(a, b), a + " <= " + b);
+            assertEquals(a.endsWith(b) && !a.equals(b), PLPRuntime.stringGT(a, b), a + " > " + b);
+            assertEquals(a.endsWith(b), PLPRuntime.stringGE(a, b), a + " >= " + b);
+        }
+        assertThrows(NullPointerException.class, () -> PLPRuntime.stringLT(null, "a"));
+        assertThrows(NullPointerException.class, () -> PLPRuntime.stringGE("a", null));
+    }
+
+    @Test
+    void testStringComparisonsKeepLocals() throws Exception {
+        String input = """
+                VAR s, t, n;
+                BEGIN
+                  s := "pre"; t := "prefix"; n := 0;
+                  IF s < t THEN n := n + 1;
+                  IF t <= t THEN n := n + 10;
+                  IF t > "fix" THEN n := n + 100;
+                  IF s >= t THEN n := n + 1000;
+                  ! s; ! t; ! n
+                END
+                .
+                """;
+        //the variables are in locals 1 to 3, which the comparisons must leave alone
+        Program program = LocalVariableTest.analyze(input);
+        assertTrue(program.block.varDecs.stream().allMatch(VarDec::isLocal));
+        for (CodeGenMode mode : CodeGenMode.values()) {
+            @SuppressWarnings("unchecked")
+            List<GenClass> classes = (List<GenClass>) program.visit(CompilerComponentFactory.getCodeGenVisitor("prog", "edu/ufl/cise/plpfa22", "", mode), null);
+            assertEquals("pre\nprefix\n111\n", run(classes).replace("\r\n", "\n"));
+        }
+    }
+
+    @Test
+    void testStatementsShareInput() throws Exception {
+        String input = """
+                VAR n, sum, name, ok;
+                BEGIN
+                  ? n;
+                  sum := 0; ok := FALSE; name := "";
+                  WHILE n > 0 DO BEGIN ? ok; IF ok THEN sum := sum + n; n := n - 1 END;
+                  ? name;
+                  ! name + ":";
+                  ! sum
+                END
+                .
+                """;
+        for (CodeGenMode mode : CodeGenMode.values()) {
+            setInput("3\nTRUE\nFALSE\nTRUE\nsum\n");
+            assertEquals("sum:\n4\n", run(compile(input, mode, true)).replace("\r\n", "\n"));
+        }
+    }
+
+    @Test
+    void testLargeInput() throws Exception {
+        String input = """
+                VAR n, x, sum;
+                BEGIN
+                  ? n;
+                  sum := 0;
+                  WHILE n > 0 DO BEGIN ? x; sum := sum + x; n := n - 1 END;
+                  ! sum
+                END
+                .
+                """;
+        StringBuilder numbers = new StringBuilder("100000\n");
+        for (int i = 1; i <= 100000; i++) {
+            numbers.append(i).append(i % 10 == 0 ? '\n' : ' ');
+        }
+        setInput(numbers.toString());
+        assertEquals("705082704\n", run(compile(input, CodeGenMode.NESTED_CLASSES, true)).replace("\r\n", "\n"));
+    }
+}
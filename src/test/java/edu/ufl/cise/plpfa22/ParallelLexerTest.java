@@ -0,0 +1,78 @@
+package edu.ufl.cise.plpfa22;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static edu.ufl.cise.plpfa22.FastLexerTest.DifferentialLexer;
+import static edu.ufl.cise.plpfa22.FastLexerTest.FRAGMENTS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs every LexerTest case against the parallel lexer, split at every line break it can split at, checking each
+ * token against the sequential lexer. Random inputs are compared the same way, so that line breaks inside strings and
+ * comments, comments ending at a lone '\r' and '\0' in comments all meet the pre-scan.
+ */
+class ParallelLexerTest extends LexerTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Override
+    ILexer getLexer(String input) {
+        return new DifferentialLexer(CompilerComponentFactory.getLexer(input), new ParallelLexer(CompilerComponentFactory.getLanguageFSA(), pool, 1).lex(input + "\0"));
+    }
+
+    @Test
+    void testFuzzed() {
+        final Random random = new Random(1010);
+        for (int i = 0; i < 3000; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int num = random.nextInt(40);
+            for (int j = 0; j < num; j++) {
+                if (random.nextInt(3) == 0) {
+                    sb.append('\n');
+                } else {
+                    sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                }
+            }
+            final ILexer lexer = getLexer(sb.toString());
+            try {
+                while (lexer.next().getKind() != IToken.Kind.EOF) {
+                    //both lexers are compared token by token
+                }
+            } catch (LexicalException ex) {
+                //expected for invalid input, as long as both lexers failed at the same token
+            }
+        }
+    }
+
+    @Test
+    void testSplitsLargeInput() throws LexicalException {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("x := x + \"a\\nb\" // step\n");
+        }
+        final String input = sb.toString();
+        final TokenStream parallel = new ParallelLexer(CompilerComponentFactory.getLanguageFSA(), pool, 4096).lex(input + "\0");
+        final TokenStream sequential = CompilerComponentFactory.getTokenStream(input);
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.getKind(i), parallel.getKind(i));
+            assertEquals(sequential.getStart(i), parallel.getStart(i));
+            assertEquals(sequential.getLine(i), parallel.getLine(i));
+            assertEquals(sequential.getColumn(i), parallel.getColumn(i));
+        }
+    }
+}
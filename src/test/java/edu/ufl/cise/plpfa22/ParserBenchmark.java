@@ -0,0 +1,45 @@
+package edu.ufl.cise.plpfa22;
+
+/**
+ * Measures how long the parser takes for a program made of long arithmetic chains. The input is lexed once into a
+ * TokenStream that is rewound for every parse, so only parsing is timed.
+ * <p>
+ * Not a unit test; run the main method with the test classpath.
+ */
+public class ParserBenchmark {
+    private static final int TERMS = 100_000;
+    private static final int WARMUP_PARSES = 20;
+    private static final int PARSES = 20;
+
+    public static void main(String[] args) throws Exception {
+        final TokenStream tokens = CompilerComponentFactory.getTokenStream(getInput());
+        for (int i = 0; i < WARMUP_PARSES; i++) {
+            parse(tokens);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < PARSES; i++) {
+            parse(tokens);
+        }
+        final long nanos = System.nanoTime() - start;
+        System.out.printf("%d-term expression: %10.3f ms/parse %10.1f ns/term%n", TERMS, nanos / 1e6 / PARSES, (double) nanos / PARSES / TERMS);
+    }
+
+    private static void parse(final TokenStream tokens) throws PLPException {
+        tokens.seek(0);
+        CompilerComponentFactory.getParser(tokens).parse();
+    }
+
+    //VAR x; x := 1 + x * 2 - (x % 3) / 4 < ... with TERMS primary expressions
+    private static String getInput() {
+        final String[] terms = {"1", "x", "(x % 3)", "2", "4"};
+        final String[] ops = {" + ", " * ", " - ", " / ", " = ", " + "};
+        final StringBuilder sb = new StringBuilder("VAR x;\nx := 0");
+        for (int i = 1; i < TERMS; i++) {
+            sb.append(ops[i % ops.length]).append(terms[i % terms.length]);
+            if (i % 16 == 0) {
+                sb.append('\n');
+            }
+        }
+        return sb.append("\n.").toString();
+    }
+}
@@ -0,0 +1,84 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import edu.ufl.cise.plpfa22.ast.Block;
+import edu.ufl.cise.plpfa22.ast.Expression;
+import edu.ufl.cise.plpfa22.ast.ExpressionBinary;
+import edu.ufl.cise.plpfa22.ast.Program;
+import edu.ufl.cise.plpfa22.ast.Statement;
+import edu.ufl.cise.plpfa22.ast.StatementBlock;
+import edu.ufl.cise.plpfa22.ast.StatementIf;
+import edu.ufl.cise.plpfa22.ast.StatementOutput;
+import edu.ufl.cise.plpfa22.ast.StatementWhile;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parses generated programs nested far deeper than the default thread stack allows. The resulting trees are walked
+ * with loops, since they are too deep for anything recursive.
+ */
+class ParserStressTest {
+    private static final int DEPTH = 300_000;
+
+    private ASTNode parse(final String input) throws PLPException {
+        return CompilerComponentFactory.getParser(CompilerComponentFactory.getTokenStream(input), ParserMode.WORKER_THREAD).parse();
+    }
+
+    private static String repeat(final String prefix, final String middle, final String suffix) {
+        return prefix.repeat(DEPTH) + middle + suffix.repeat(DEPTH);
+    }
+
+    @Test
+    void testNestedBlocks() throws PLPException {
+        Statement statement = ((Program) parse(repeat("BEGIN ", "! 1", " END") + ".")).block.statement;
+        int depth = 0;
+        while (statement instanceof StatementBlock block) {
+            assertEquals(1, block.statements.size());
+            statement = block.statements.get(0);
+            depth++;
+        }
+        assertEquals(DEPTH, depth);
+        assertInstanceOf(StatementOutput.class, statement);
+    }
+
+    @Test
+    void testIfWhileChain() throws PLPException {
+        Statement statement = ((Program) parse(repeat("IF TRUE THEN WHILE FALSE DO ", "! 1", "") + ".")).block.statement;
+        int depth = 0;
+        while (statement instanceof StatementIf ifStatement) {
+            statement = ((StatementWhile) ifStatement.statement).statement;
+            depth++;
+        }
+        assertEquals(DEPTH, depth);
+        assertInstanceOf(StatementOutput.class, statement);
+    }
+
+    @Test
+    void testNestedParentheses() throws PLPException {
+        Expression expression = ((StatementOutput) ((Program) parse("! " + repeat("(1 + ", "1", ")") + ".")).block.statement).expression;
+        int depth = 0;
+        while (expression instanceof ExpressionBinary binary) {
+            expression = binary.e1;
+            depth++;
+        }
+        assertEquals(DEPTH, depth);
+    }
+
+    @Test
+    void testNestedProcedures() throws PLPException {
+        Block block = ((Program) parse(repeat("PROCEDURE p; ", "! 1", "; ") + ".")).block;
+        int depth = 0;
+        while (!block.procedureDecs.isEmpty()) {
+            block = block.procedureDecs.get(0).block;
+            depth++;
+        }
+        assertEquals(DEPTH, depth);
+    }
+
+    @Test
+    void testTooDeep() {
+        final IParser parser = new WorkerThreadParser(new Parser(CompilerComponentFactory.getTokenStream(repeat("BEGIN ", "", " END") + ".")), 1 << 18);
+        assertThrows(SyntaxException.class, parser::parse);
+    }
+}
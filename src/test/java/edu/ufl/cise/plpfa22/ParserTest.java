@@ -1147,4 +1147,36 @@ class ParserTest {
         Statement v7 = ((StatementWhile) v4).statement;
         assertThat("", v7, instanceOf(StatementEmpty.class));
     }
+
+    @Test
+    void testPrecedenceAndFirstTokens() throws PLPException {
+        String input = """
+                ! a < (b + c) * d - e % f + g
+                .
+                """;
+        ASTNode ast = getAST(input);
+        Expression v0 = ((StatementOutput) ((Program) ast).block.statement).expression;
+        //a < (((b + c) * d - (e % f)) + g)
+        ExpressionBinary lt = (ExpressionBinary) v0;
+        assertEquals(IToken.Kind.LT, lt.op.getKind());
+        assertEquals(new IToken.SourceLocation(1, 3), lt.firstToken.getSourceLocation());
+        assertThat("", lt.e0, instanceOf(ExpressionIdent.class));
+        ExpressionBinary plus = (ExpressionBinary) lt.e1;
+        assertEquals(IToken.Kind.PLUS, plus.op.getKind());
+        //each chain starts at its first token, here the parenthesis
+        assertEquals(new IToken.SourceLocation(1, 7), plus.firstToken.getSourceLocation());
+        assertEquals("g", String.valueOf(plus.e1.firstToken.getText()));
+        ExpressionBinary minus = (ExpressionBinary) plus.e0;
+        assertEquals(IToken.Kind.MINUS, minus.op.getKind());
+        assertEquals(new IToken.SourceLocation(1, 7), minus.firstToken.getSourceLocation());
+        ExpressionBinary times = (ExpressionBinary) minus.e0;
+        assertEquals(IToken.Kind.TIMES, times.op.getKind());
+        assertEquals(new IToken.SourceLocation(1, 7), times.firstToken.getSourceLocation());
+        ExpressionBinary inner = (ExpressionBinary) times.e0;
+        assertEquals(IToken.Kind.PLUS, inner.op.getKind());
+        assertEquals(new IToken.SourceLocation(1, 8), inner.firstToken.getSourceLocation());
+        ExpressionBinary mod = (ExpressionBinary) minus.e1;
+        assertEquals(IToken.Kind.MOD, mod.op.getKind());
+        assertEquals(new IToken.SourceLocation(1, 21), mod.firstToken.getSourceLocation());
+    }
 }
@@ -0,0 +1,111 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.DynamicClassLoader;
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.List;
+
+import static edu.ufl.cise.plpfa22.ConstantFoldingTest.run;
+import static edu.ufl.cise.plpfa22.MethodCodeGenTest.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that with CACHED_NESTED_CLASSES a CALL reuses the procedure object of the previous call to the procedure from
+ * the same activation, with the variables reset, that recursive calls still get their own objects, and that
+ * NESTED_CLASSES creates an object for each call.
+ */
+class ProcedureCacheTest {
+
+    @Test
+    void testVariablesResetForEachCall() throws Exception {
+        String input = """
+                CONST limit = 3;
+                VAR i;
+                PROCEDURE p;
+                  CONST c = "c";
+                  VAR local, s;
+                  PROCEDURE q;
+                    ! s;
+                  BEGIN
+                    ! local;
+                    local := i;
+                    s := c;
+                    CALL q
+                  END;
+                BEGIN
+                  i := 0;
+                  WHILE i < limit DO BEGIN CALL p; i := i + 1 END
+                END
+                .
+                """;
+        String output = run(compile(input, CodeGenMode.CACHED_NESTED_CLASSES, false));
+        assertEquals("0\nc\n".repeat(3), output.replace("\r\n", "\n"));
+    }
+
+    @Test
+    void testRecursion() throws Exception {
+        String input = """
+                VAR n;
+                PROCEDURE down;
+                  VAR mine;
+                  BEGIN
+                    mine := n;
+                    n := n - 1;
+                    IF n > 0 THEN CALL down;
+                    IF n > 0 - 3 THEN BEGIN n := n - 1; CALL down END;
+                    ! mine
+                  END;
+                BEGIN
+                  n := 3;
+                  CALL down
+                END
+                .
+                """;
+        assertEquals(run(compile(input, CodeGenMode.METHODS, false)), run(compile(input, CodeGenMode.CACHED_NESTED_CLASSES, false)));
+    }
+
+    @Test
+    void testCallsDoNotAllocate() throws Exception {
+        String input = """
+                VAR i;
+                PROCEDURE p;
+                  VAR j;
+                  PROCEDURE q;
+                    j := j + 1;
+                  BEGIN j := i; CALL q END;
+                BEGIN
+                  i := 0;
+                  WHILE i < 1000000 DO BEGIN CALL p; i := i + 1 END
+                END
+                .
+                """;
+        List<GenClass> classes = compile(input, CodeGenMode.CACHED_NESTED_CLASSES, false);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        run(classes);
+        //two objects per iteration were at least 32 MB
+        assertTrue(threads.getCurrentThreadAllocatedBytes() - bytes < 4_000_000);
+    }
+
+    @Test
+    void testNoCacheByDefault() throws Exception {
+        String input = """
+                PROCEDURE p;
+                  PROCEDURE q;
+                    ! "q";
+                  CALL q;
+                CALL p
+                .
+                """;
+        DynamicClassLoader loader = new DynamicClassLoader();
+        loader.define(compile(input, CodeGenMode.NESTED_CLASSES, false));
+        for (String name : new String[]{"prog", "prog$p", "prog$p$q"}) {
+            for (Field field : loader.loadClass("edu.ufl.cise.plpfa22." + name).getDeclaredFields()) {
+                assertFalse(field.getName().startsWith("cache$") || field.getName().equals("active$"), name + "." + field.getName());
+            }
+        }
+    }
+}
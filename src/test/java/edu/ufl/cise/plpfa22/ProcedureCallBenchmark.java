@@ -0,0 +1,65 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.DynamicClassLoader;
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Measures the throughput and the allocation of a WHILE loop that calls a procedure CALLS times, for each code
+ * generation mode. Bytes are those allocated by the running thread, as reported by the JVM.
+ * <p>
+ * A procedure this small is inlined into the loop, where escape analysis removes the allocation of a procedure object
+ * per call of NESTED_CLASSES, which makes it faster than CACHED_NESTED_CLASSES; run with -XX:-DoEscapeAnalysis to see
+ * the cost of calls whose procedure objects are not removed, as for procedures too large to inline or recursive ones.
+ * <p>
+ * Not a unit test; run the main method with the test classpath.
+ */
+public class ProcedureCallBenchmark {
+    private static final int CALLS = 100_000_000;
+    private static final int RUNS = 3;
+
+    static final String PROGRAM = """
+            VAR i, sum;
+            PROCEDURE add;
+              VAR j;
+              BEGIN
+                j := i %% 7;
+                sum := sum + j
+              END;
+            BEGIN
+              i := 0; sum := 0;
+              WHILE i < %d DO BEGIN CALL add; i := i + 1 END;
+              ! sum
+            END
+            .
+            """.formatted(CALLS);
+
+    public static void main(String[] args) throws Exception {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (final CodeGenMode mode : CodeGenMode.values()) {
+            final Method main = compile(mode).getMethod("main", String[].class);
+            for (int run = 0; run < RUNS; run++) {
+                final long bytes = threads.getCurrentThreadAllocatedBytes();
+                final long start = System.nanoTime();
+                main.invoke(null, (Object) new String[0]);
+                final long nanos = System.nanoTime() - start;
+                final long allocated = threads.getCurrentThreadAllocatedBytes() - bytes;
+                System.out.printf("%-21s %10.1f ms %8.2f ns/call %12.1f calls/ms %10.3f bytes/call%n", mode, nanos / 1e6,
+                        (double) nanos / CALLS, CALLS / (nanos / 1e6), (double) allocated / CALLS);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<?> compile(final CodeGenMode mode) throws PLPException {
+        final ASTNode program = CompilerComponentFactory.getParser(CompilerComponentFactory.getLexer(PROGRAM)).parse();
+        program.visit(CompilerComponentFactory.getScopeVisitor(), null);
+        program.visit(CompilerComponentFactory.getTypeInferenceVisitor(), null);
+        final List<GenClass> classes = (List<GenClass>) program.visit(CompilerComponentFactory.getCodeGenVisitor("prog", "edu/ufl/cise/plpfa22", "", mode), null);
+        return new DynamicClassLoader().define(classes);
+    }
+}
@@ -0,0 +1,129 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.CodeGenUtils.GenClass;
+import edu.ufl.cise.plpfa22.ast.ProcDec;
+import edu.ufl.cise.plpfa22.ast.Program;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static edu.ufl.cise.plpfa22.ConstantFoldingTest.countInstructions;
+import static edu.ufl.cise.plpfa22.ConstantFoldingTest.generate;
+import static edu.ufl.cise.plpfa22.ConstantFoldingTest.run;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks which procedure classes are generated after the ReachabilityVisitor ran, and that the pruned programs print
+ * the same as the programs compiled without it.
+ */
+class ReachabilityTest {
+
+    static final String PROGRAM = """
+            CONST debug = FALSE;
+            VAR n;
+            PROCEDURE unused;
+              PROCEDURE nested;
+                ! "nested";
+              CALL nested;
+            PROCEDURE log;
+              ! "log";
+            PROCEDURE countdown;
+              PROCEDURE step;
+                n := n - 1;
+              BEGIN
+                ! n;
+                CALL step;
+                IF n > 0 THEN CALL countdown
+              END;
+            PROCEDURE odd;
+              PROCEDURE even;
+                IF n > 0 THEN BEGIN n := n - 1; CALL odd END;
+              IF n > 0 THEN BEGIN n := n - 1; CALL even END;
+            BEGIN
+              n := 3;
+              CALL countdown;
+              IF debug THEN CALL log;
+              WHILE debug * TRUE DO CALL unused;
+              IF debug # TRUE THEN ! "live";
+              n := 5;
+              CALL odd;
+              ! n
+            END
+            .
+            """;
+
+    static Program compile(String input, boolean prune) throws PLPException {
+        Program program = ConstantFoldingTest.compile(input, true);
+        if (prune) {
+            program.visit(CompilerComponentFactory.getReachabilityVisitor(), null);
+        }
+        return program;
+    }
+
+    static List<String> classNames(List<GenClass> classes) {
+        return classes.stream().map(GenClass::className).toList();
+    }
+
+    @Test
+    void testUnreachableProcedures() throws PLPException {
+        Program program = compile(PROGRAM, true);
+        List<ProcDec> procs = program.block.procedureDecs;
+        assertTrue(procs.get(0).isUnreachable());
+        assertTrue(procs.get(0).block.procedureDecs.get(0).isUnreachable());
+        assertTrue(procs.get(1).isUnreachable());
+        assertFalse(procs.get(2).isUnreachable());
+        assertFalse(procs.get(2).block.procedureDecs.get(0).isUnreachable());
+        assertFalse(procs.get(3).isUnreachable());
+        assertFalse(procs.get(3).block.procedureDecs.get(0).isUnreachable());
+        assertEquals(List.of("edu/ufl/cise/plpfa22/prog", "edu/ufl/cise/plpfa22/prog$countdown", "edu/ufl/cise/plpfa22/prog$countdown$step",
+                "edu/ufl/cise/plpfa22/prog$odd", "edu/ufl/cise/plpfa22/prog$odd$even"), classNames(generate(program)));
+    }
+
+    @Test
+    void testSameOutputWithLessCode() throws Exception {
+        List<GenClass> all = generate(compile(PROGRAM, false));
+        List<GenClass> pruned = generate(compile(PROGRAM, true));
+        assertEquals(8, all.size());
+        assertEquals(run(all), run(pruned));
+        assertEquals("3\n2\n1\nlive\n0\n", run(pruned).replace("\r\n", "\n"));
+        assertTrue(countInstructions(pruned) < countInstructions(all));
+    }
+
+    @Test
+    void testConstantConditions() throws Exception {
+        String input = """
+                VAR i;
+                BEGIN
+                  i := 0;
+                  WHILE 1 > 2 DO i := i + 1;
+                  IF "a" < "ab" THEN ! "prefix";
+                  IF TRUE * FALSE THEN ! "never";
+                  ! i
+                END
+                .
+                """;
+        List<GenClass> pruned = generate(compile(input, true));
+        assertEquals("prefix\n0\n", run(pruned).replace("\r\n", "\n"));
+        //only the assignment and the two outputs are left
+        List<GenClass> plain = generate(ConstantFoldingTest.compile(input, false));
+        assertEquals(run(plain), run(pruned));
+        assertTrue(countInstructions(pruned) < countInstructions(plain) / 2);
+    }
+
+    @Test
+    void testInfiniteLoopWithoutTest() throws PLPException {
+        String input = """
+                VAR i;
+                BEGIN
+                  i := 0;
+                  WHILE TRUE DO i := i + 1;
+                  ! i
+                END
+                .
+                """;
+        //the class is verified when it is initialized, without running main
+        List<GenClass> classes = generate(compile(input, true));
+        Class<?> mainClass = new CodeGenUtils.DynamicClassLoader().define(classes);
+        assertDoesNotThrow(() -> Class.forName(mainClass.getName(), true, mainClass.getClassLoader()));
+    }
+}
@@ -0,0 +1,96 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.IToken.SourceLocation;
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import edu.ufl.cise.plpfa22.ast.Block;
+import edu.ufl.cise.plpfa22.ast.Program;
+import edu.ufl.cise.plpfa22.ast.StatementAssign;
+import edu.ufl.cise.plpfa22.ast.StatementBlock;
+import edu.ufl.cise.plpfa22.ast.StatementEmpty;
+import edu.ufl.cise.plpfa22.ast.StatementOutput;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static edu.ufl.cise.plpfa22.IToken.Kind.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every ParserTest case through the recovering parser, which must build the same trees and fail with the same
+ * first error, and checks that one parse reports all errors of a program.
+ */
+class RecoveringParserTest extends ParserTest {
+
+    @Override
+    ASTNode getAST(String input) throws PLPException {
+        return CompilerComponentFactory.getRecoveringParser(CompilerComponentFactory.getLexer(input)).parse();
+    }
+
+    ParseResult parseAll(String input) throws LexicalException {
+        return CompilerComponentFactory.getRecoveringParser(CompilerComponentFactory.getLexer(input)).parseAll();
+    }
+
+    void checkError(SyntaxException error, int line, int column, Set<IToken.Kind> expected) {
+        assertEquals(new SourceLocation(line, column), error.getSourceLocation());
+        assertEquals(expected, error.getExpected());
+    }
+
+    @Test
+    void testAllErrorsReported() throws LexicalException {
+        String input = """
+                CONST c = ;
+                VAR a b;
+                PROCEDURE p;
+                    x = 1;
+                BEGIN
+                    a := 1;
+                    b := (2 + ;
+                    ! a
+                    ! b
+                END
+                .
+                """;
+        ParseResult result = parseAll(input);
+        List<SyntaxException> errors = result.errors();
+        assertEquals(5, errors.size(), errors.toString());
+        checkError(errors.get(0), 1, 11, Set.of(NUM_LIT, STRING_LIT, BOOLEAN_LIT));
+        checkError(errors.get(1), 2, 7, Set.of(COMMA, SEMI));
+        checkError(errors.get(2), 4, 7, Set.of(ASSIGN));
+        checkError(errors.get(3), 7, 15, Set.of(IDENT, NUM_LIT, STRING_LIT, BOOLEAN_LIT, LPAREN));
+        checkError(errors.get(4), 9, 5, Set.of(SEMI, KW_END));
+        assertEquals("2:7 Expected one of [COMMA, SEMI] but found IDENT", errors.get(1).getMessage());
+
+        //the partial AST keeps everything that could be parsed
+        Block block = ((Program) result.ast()).block;
+        assertEquals(1, block.varDecs.size());
+        assertEquals(0, block.constDecs.size());
+        assertEquals(1, block.procedureDecs.size());
+        assertInstanceOf(StatementEmpty.class, block.procedureDecs.get(0).block.statement);
+        List<?> statements = ((StatementBlock) block.statement).statements;
+        assertEquals(4, statements.size());
+        assertInstanceOf(StatementAssign.class, statements.get(0));
+        assertInstanceOf(StatementEmpty.class, statements.get(1));
+        assertInstanceOf(StatementOutput.class, statements.get(2));
+        assertInstanceOf(StatementOutput.class, statements.get(3));
+    }
+
+    @Test
+    void testNoErrors() throws LexicalException {
+        ParseResult result = parseAll("VAR x; x := 1 .");
+        assertFalse(result.hasErrors());
+        assertInstanceOf(Program.class, result.ast());
+    }
+
+    @Test
+    void testMissingDot() throws LexicalException {
+        ParseResult result = parseAll("! 1 ! 2");
+        assertEquals(1, result.errors().size());
+        checkError(result.errors().get(0), 1, 5, Set.of(DOT));
+    }
+
+    @Test
+    void testLexicalErrorEndsParse() {
+        assertThrows(LexicalException.class, () -> parseAll("x := @ ."));
+    }
+}
@@ -0,0 +1,124 @@
+package edu.ufl.cise.plpfa22;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static edu.ufl.cise.plpfa22.FastLexerTest.DifferentialLexer;
+import static edu.ufl.cise.plpfa22.FastLexerTest.FRAGMENTS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs every LexerTest case against a streaming lexer whose buffer is small enough to slide and grow within a single
+ * token, checking each token against the reference lexer. Random inputs are also lexed from memory-mapped files read
+ * through tiny windows, so that multi-byte chars are split between windows.
+ */
+class StreamingLexerTest extends LexerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Override
+    ILexer getLexer(String input) {
+        return new DifferentialLexer(CompilerComponentFactory.getLexer(input), new StreamingLexer(new StringReader(input), CompilerComponentFactory.getLanguageFSA(), 2));
+    }
+
+    @Test
+    void testFuzzedFromFile() throws IOException {
+        final Random random = new Random(6006);
+        final Path path = tempDir.resolve("input.p");
+        for (int i = 0; i < 500; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int num = random.nextInt(12);
+            for (int j = 0; j < num; j++) {
+                if (random.nextInt(8) == 0) {
+                    sb.append("\"\u00e9\u20ac\ud83d\ude00\"");
+                } else {
+                    sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                }
+            }
+            final String input = sb.toString();
+            Files.writeString(path, input, StandardCharsets.UTF_8);
+            final StreamingLexer lexer = new StreamingLexer(new MappedFileReader(path, 4 + random.nextInt(4)), CompilerComponentFactory.getLanguageFSA(), 3);
+            try (lexer) {
+                lexAll(new DifferentialLexer(CompilerComponentFactory.getLexer(input), lexer));
+            }
+        }
+    }
+
+    @Test
+    void testPath() throws IOException, LexicalException {
+        final Path path = tempDir.resolve("program.p");
+        Files.writeString(path, "VAR x;\r\n// \u00e9t\u00e9\n! \"\u20ac\"\n.", StandardCharsets.UTF_8);
+        try (StreamingLexer lexer = CompilerComponentFactory.getLexer(path)) {
+            checkToken(lexer.next(), IToken.Kind.KW_VAR, 1, 1);
+            checkToken(lexer.next(), IToken.Kind.IDENT, 1, 5);
+            checkToken(lexer.next(), IToken.Kind.SEMI, 1, 6);
+            checkToken(lexer.next(), IToken.Kind.BANG, 3, 1);
+            final IToken string = lexer.next();
+            checkToken(string, IToken.Kind.STRING_LIT, 3, 3);
+            assertEquals("\u20ac", string.getStringValue());
+            checkToken(lexer.next(), IToken.Kind.DOT, 4, 1);
+            checkToken(lexer.next(), IToken.Kind.EOF);
+        }
+    }
+
+    @Test
+    void testSupplementaryCharAtBufferBoundary() throws IOException, LexicalException {
+        //the buffer has room for one char when the surrogate pair is reached
+        final String input = "\"" + "a".repeat(8190) + "\ud83d\ude00\" .";
+        final Path path = tempDir.resolve("boundary.p");
+        Files.writeString(path, input, StandardCharsets.UTF_8);
+        try (StreamingLexer lexer = CompilerComponentFactory.getLexer(path)) {
+            final IToken string = lexer.next();
+            checkToken(string, IToken.Kind.STRING_LIT, 1, 1);
+            assertEquals(input.substring(1, input.length() - 3), string.getStringValue());
+            checkToken(lexer.next(), IToken.Kind.DOT, 1, 8196);
+            checkToken(lexer.next(), IToken.Kind.EOF);
+        }
+    }
+
+    @Test
+    void testReadSurrogatePairOneCharAtATime() throws IOException {
+        final String input = "a\ud83d\ude00b\ud83d\ude00";
+        final Path path = tempDir.resolve("pairs.p");
+        Files.writeString(path, input, StandardCharsets.UTF_8);
+        for (int windowSize = 4; windowSize <= 8; windowSize++) {
+            try (MappedFileReader reader = new MappedFileReader(path, windowSize)) {
+                final char[] c = new char[1];
+                final StringBuilder sb = new StringBuilder();
+                while (reader.read(c, 0, 1) == 1) {
+                    sb.append(c[0]);
+                }
+                assertEquals(input, sb.toString());
+            }
+        }
+    }
+
+    @Test
+    void testFixedSpellingsAreCopied() throws LexicalException {
+        //tokens of a kind with one spelling view the same array, which a caller changing the text must not change
+        final ILexer first = new StreamingLexer(new StringReader("CONST :="), CompilerComponentFactory.getLanguageFSA(), 2);
+        first.next().getText()[0] = 'X';
+        first.next().getText()[0] = 'X';
+        final ILexer second = new StreamingLexer(new StringReader("CONST :="), CompilerComponentFactory.getLanguageFSA(), 2);
+        assertEquals("CONST", String.valueOf(second.next().getText()));
+        assertEquals(":=", String.valueOf(second.next().getText()));
+    }
+
+    private void lexAll(final ILexer lexer) {
+        try {
+            while (lexer.next().getKind() != IToken.Kind.EOF) {
+                //both lexers are compared token by token
+            }
+        } catch (LexicalException ex) {
+            //expected for invalid input, as long as both lexers failed at the same token
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package edu.ufl.cise.plpfa22;
+
+import edu.ufl.cise.plpfa22.ast.ASTNode;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static edu.ufl.cise.plpfa22.FastLexerTest.DifferentialLexer;
+import static edu.ufl.cise.plpfa22.IToken.Kind.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every LexerTest case against a token stream, checking each token against the reference lexer, and every
+ * ParserTest case with the parser reading from a token stream.
+ */
+class TokenStreamTest extends LexerTest {
+
+    @Override
+    ILexer getLexer(String input) {
+        return new DifferentialLexer(CompilerComponentFactory.getLexer(input), CompilerComponentFactory.getTokenStream(input));
+    }
+
+    @Nested
+    class ParsingTokenStream extends ParserTest {
+        @Override
+        ASTNode getAST(String input) throws PLPException {
+            return CompilerComponentFactory.getParser(CompilerComponentFactory.getTokenStream(input)).parse();
+        }
+    }
+
+    @Test
+    public void testRandomAccess() throws LexicalException {
+        String input = """
+                VAR x;
+                x := 42 .
+                """;
+        show(input);
+        TokenStream stream = CompilerComponentFactory.getTokenStream(input);
+        assertEquals(9, stream.size());
+        assertEquals(IDENT, stream.getKind(3));
+        assertEquals(2, stream.getLine(3));
+        assertEquals(1, stream.getColumn(3));
+        assertEquals(NUM_LIT, stream.getKind(5));
+        assertEquals(2, stream.getLength(5));
+        checkToken(stream.peek(6), DOT, 2, 9);
+        stream.seek(5);
+        checkInt(stream.next(), 42, 2, 6);
+        checkToken(stream.next(), DOT, 2, 9);
+        stream.seek(1);
+        checkIdent(stream.next(), "x", 1, 5);
+        assertSame(stream.get(1).getStringValue(), stream.get(3).getStringValue());
+        assertThrows(IndexOutOfBoundsException.class, () -> stream.seek(9));
+    }
+
+    @Test
+    public void testDeferredError() throws LexicalException {
+        String input = """
+                x := @ y
+                """;
+        show(input);
+        TokenStream stream = CompilerComponentFactory.getTokenStream(input);
+        assertEquals(ERROR, stream.getKind(stream.size() - 1));
+        assertEquals(1, stream.getLine(2));
+        assertEquals(6, stream.getColumn(2));
+        checkIdent(stream.next(), "x", 1, 1);
+        checkToken(stream.next(), ASSIGN, 1, 3);
+        assertThrows(LexicalException.class, stream::next);
+        assertThrows(LexicalException.class, stream::peek);
+    }
+
+    @Test
+    public void testSerialization() throws IOException, LexicalException {
+        String input = """
+                CONST s = "a\\nb";
+                ! s // comment
+                .
+                """;
+        show(input);
+        TokenStream stream = CompilerComponentFactory.getTokenStream(input);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stream.writeTo(new DataOutputStream(bytes));
+        TokenStream read = CompilerComponentFactory.getTokenStream(input, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(stream.size(), read.size());
+        ILexer expected = CompilerComponentFactory.getLexer(input);
+        for (int i = 0; i < read.size(); i++) {
+            IToken expectedToken = expected.next();
+            IToken token = read.next();
+            assertEquals(expectedToken.getKind(), token.getKind());
+            assertArrayEquals(expectedToken.getText(), token.getText());
+            assertEquals(expectedToken.getSourceLocation(), token.getSourceLocation());
+        }
+        assertThrows(IOException.class, () -> CompilerComponentFactory.getTokenStream(input + " ", new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        //an edit that keeps the length is found as well
+        String edited = input.replace("! s", "? s");
+        assertEquals(input.length(), edited.length());
+        assertThrows(IOException.class, () -> CompilerComponentFactory.getTokenStream(edited, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+}